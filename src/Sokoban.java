@@ -12,32 +12,28 @@ public final class Sokoban extends MIDlet implements CommandListener
 {
 	private Display				display;
 	private SokobanCanvas	canvas;
-	private StringBuffer	levelData;
-	private int						height;
-	private int						width;
-	private int						manX;
-	private int						manY;
-	private int						openWater;
-	private Stack					undoData;
+	private SokobanSource	levels;
+	private SokobanBoard	board;
+	private SokobanHistory	history;
+	private SokobanJournal	journal;
+	private SokobanHint		hint;
 	private Alert					solvedAlert;
+	private Alert					stuckAlert;
+	private boolean				safePushes;
 	private int						level;
 	private RecordStore		recordStore;
-	private int						levelID;
+	private SokobanIndex	index;
+	private SokobanMetrics	metrics;
 	private int						HighestLevelAttainedKey = 0;
 
-	private char					Wall					= '#';
-	private char					Air						= ' ';
-	private char					Water					= '.';
-	private char					Block					= '$';
-	private char					BlockOnWater	= '*';
-	private char					Man						= '@';
-	private char					ManOnWater		= '+';
-
 	private Command				undoCommand;
+	private Command				redoCommand;
+	private Command				hintCommand;
 	private Command				okCommand;
 	private Command				exitCommand;
 	private Command 			changeLevelCommand;
 	private Command 			restartLevelCommand;
+	private Command				statsCommand;
 
 	private TextBox				levelScreen;
 
@@ -48,27 +44,42 @@ public final class Sokoban extends MIDlet implements CommandListener
 
 	public int width()
 	{
-		return this.width;
+		return board.width();
 	}
 
 	public int height()
 	{
-		return this.height;
+		return board.height();
+	}
+
+	public int manX()
+	{
+		return board.manX();
+	}
+
+	public int manY()
+	{
+		return board.manY();
 	}
 
 	public boolean solved()
 	{
-		return 0 == openWater;
+		return board.solved();
 	}
 
 	public char data(int row, int col)
 	{
-		return levelData.charAt(row * height + col);
+		return board.data(row, col);
+	}
+
+	SokobanMetrics metrics()
+	{
+		return metrics;
 	}
 
-	private void set(int row, int col, char c)
+	public int pushesLeft()
 	{
-		levelData.setCharAt(row * height + col, c);
+		return board.pushesLeft();
 	}
 
 	public void restartLevel()
@@ -76,169 +87,156 @@ public final class Sokoban extends MIDlet implements CommandListener
 		setLevel(level);
 	}
 
-	private void setLevel(int i)
+	/*
+	 * Start level i afresh. Returns false, leaving the level as it is, if
+	 * it can't be played.
+	 */
+	private boolean setLevel(int i)
 	{
-		if (i > Data.length - 1)
-			return;
+		if (!loadLevel(i))
+			return false;
 
-		level = i;
+		journal.start(level);
 
-		undoData.removeAllElements();
+		return true;
+	}
 
-		openWater	= 0;
-		width			= 8;
-		height		= 8;
-		levelData	= new StringBuffer(Data[level]);
+	// Start the first level from i on that can be played, if there is one.
+	private boolean nextLevel(int i)
+	{
+		for (; i < levels.size(); ++i)
+		{
+			if (setLevel(i))
+				return true;
+		}
 
-		manX = -1;
-		manY = -1;
+		return false;
+	}
 
-		for (i = 0; i < levelData.length(); ++i)
-		{
-			char c = levelData.charAt(i);
+	private boolean loadLevel(int i)
+	{
+		long begin = System.currentTimeMillis();
 
-			if (c == Man || c == ManOnWater)
-			{
-				manX = i % width;
-				manY = i / width;
-			}
+		SokobanBoard next = levels.board(i);
 
-			if (c == Water || c == ManOnWater)
-				openWater++;
-		}
+		if (null == next)
+			return false;
 
-		//System.out.println("Open water: " + Integer.toString(openWater));
+		level = i;
 
-		canvas.reset(width, height);
-	}
+		history.clear();
+		hint.forget();
 
-	private boolean outOfBounds(int y, int x)
-	{
-		return (x < 0) || (y < 0) || (x >= width) || (y >= height);
-	}
+		board = next;
 
-	boolean hasWater(int y, int x)
-	{
-		return hasWater(data(y, x));
-	}
+		canvas.reset(board.width(), board.height());
 
-	boolean hasWater(char c)
-	{
-		return c == Water || c == ManOnWater || c == BlockOnWater;
-	}
+		if (metrics != null)
+		{
+			metrics.count(SokobanMetrics.Levels);
+			metrics.time(SokobanMetrics.LevelTime, System.currentTimeMillis() - begin);
+			metrics.depth(0);
+		}
 
-	boolean hasBlock(char c)
-	{
-		return c == Block || c == BlockOnWater;
+		return true;
 	}
 
 	private boolean move(int dy, int dx)
 	{
-		boolean push = false;
+		int result = step(dy, dx);
 
-		int newX = manX + dx;
-		int newY = manY + dy;
+		if (0 == result)
+		{
+			if (metrics != null)
+				metrics.count(SokobanMetrics.Rejected);
 
-		// Gone out of bounds?
-		if (outOfBounds(newY, newX))
 			return false;
+		}
 
-		// Hit a wall?
-		if (data(manY + dy, manX + dx) == Wall)
-			return false;
+		char c = SokobanBoard.moveCharacter(dy, dx, 0 != (result & SokobanBoard.Pushed));
+
+		history.add(c);
+		journal.record(c);
+		hint.moved(c);
 
-		// Pushing a block?
-		if (
-				data(manY + dy, manX + dx) == Block
-				||
-				data(manY + dy, manX + dx) == BlockOnWater
-		   )
+		if (metrics != null)
 		{
-			int blockX = newX + dx;
-			int blockY = newY + dy;
+			metrics.count(SokobanMetrics.Moves);
 
-			// Block goes out of bounds?
-			if (outOfBounds(blockY, blockX))
-				return false;
+			if (SokobanBoard.push(c))
+				metrics.count(SokobanMetrics.Pushes);
 
-			// Block hits wall?
-			if (data(blockY, blockX) == Wall)
-				return false;
+			metrics.depth(history.size());
+		}
 
-			// Block hits other block?
-			if (hasBlock(data(blockY, blockX)))
-				return false;
+		checkSolved();
 
-			// Set the data for the cell we are pushing into.
-			// Fallthrough will handle the rest.
-			if (hasWater(blockY, blockX))
-			{
-				set(blockY, blockX, BlockOnWater);
-				openWater--;
-
-				if (hasWater(newY, newX))
-				{
-					openWater++;
-				}
-//				System.out.println("Open water: " + Integer.toString(openWater));
-			}
-			else
-			{
-				set(blockY, blockX, Block);
+		return true;
+	}
 
-				if (hasWater(newY, newX))
-				{
-					openWater++;
-				}
+	/*
+	 * Make a move without recording it. Returns what board.move() did, or
+	 * 0 if the move was not made.
+	 */
+	private int step(int dy, int dx)
+	{
+		int result = board.move(dy, dx);
 
-//				System.out.println("Open water: " + Integer.toString(openWater));
-			}
+		if (0 == result)
+			return 0;
 
-			repaint(blockY, blockX);
+		boolean push = 0 != (result & SokobanBoard.Pushed);
 
-			push = true;
-		}
+		// Pushed a block where it, or another, can never get to water.
+		if (0 != (result & SokobanBoard.Stuck))
+		{
+			if (safePushes)
+			{
+				board.undo(dy, dx, push);
+				return 0;
+			}
 
-		// Walking bit.
-		if (hasWater(newY, newX))
-			set(newY, newX, ManOnWater);
-		else
-			set(newY, newX, Man);
+			display.setCurrent(stuckAlert);
+		}
 
-		if (hasWater(manY, manX))
-			set(manY, manX, Water);
-		else
-			set(manY, manX, Air);
+		int manX = board.manX();
+		int manY = board.manY();
 
+		repaint(manY - dy, manX - dx);
 		repaint(manY, manX);
 
-		manY += dy;
-		manX += dx;
-
-		repaint(manY, manX);
+		if (push)
+		{
+			repaint(manY + dy, manX + dx);
+			canvas.repaintStatus();
+		}
 
-		undoData.push(new Character(moveCharacter(dy, dx, push)));
+		return result;
+	}
 
+	private void checkSolved()
+	{
 		if (solved())
 		{
-			solvedAlert.setTitle("Level " + Integer.toString(level) + " solved");
+			int done = level;
+
+			solvedAlert.setTitle("Level " + Integer.toString(done) + " solved");
+
+			if (!nextLevel(done + 1))
+				solvedAlert.setString("That was the last level");
+			else if (level > done + 1)
+				solvedAlert.setString("Skipped levels that can't be played");
+			else
+				solvedAlert.setString(null);
+
 			display.setCurrent(solvedAlert);
-			setLevel(++level);
 			savePosition();
 		}
-
-		return true;
 	}
 
 	void repaint()
 	{
-		for (int y = 0; y < height; ++y)
-		{
-			for (int x = 0; x < width; ++x)
-			{
-				repaint(y, x);
-			}
-		}
+		canvas.repaint();
 	}
 
 	void repaint(int y, int x)
@@ -248,134 +246,95 @@ public final class Sokoban extends MIDlet implements CommandListener
 
 	public boolean undo()
 	{
-		if (undoData.empty())
+		if (!history.canUndo())
 			return false;
 
-		char lastMove = ((Character)undoData.pop()).charValue();
+		char lastMove = history.undo();
 
-		int dx = xDelta(lastMove);
-		int dy = yDelta(lastMove);
+		journal.record('-');
+		hint.undone(lastMove);
 
-		int newX = manX - dx;
-		int newY = manY - dy;
-
-		if (hasWater(newY, newX))
-		{
-			set(newY, newX, ManOnWater);
-		}
-		else
+		if (metrics != null)
 		{
-			set(newY, newX, Man);
+			metrics.count(SokobanMetrics.Undos);
+			metrics.depth(history.size());
 		}
 
-		repaint(newY, newX);
+		int dx = SokobanBoard.xDelta(lastMove);
+		int dy = SokobanBoard.yDelta(lastMove);
 
-		if (push(lastMove))
-		{
-			int oldBlockX = manX + dx;
-			int oldBlockY = manY + dy;
-
-			if (hasWater(oldBlockY, oldBlockX))
-			{
-				set(oldBlockY, oldBlockX, Water);
-				openWater++;
-			}
-			else
-			{
-				set(oldBlockY, oldBlockX, Air);
-			}
+		int manX = board.manX();
+		int manY = board.manY();
 
-			if (hasWater(manY, manX))
-			{
-				set(manY, manX, BlockOnWater);
-				openWater--;
-			}
-			else
-			{
-				set(manY, manX, Block);
-			}
-
-			repaint(oldBlockY, oldBlockX);
-		}
-		else
-		{
-			if (hasWater(manY, manX))
-				set(manY, manX, Water);
-			else
-				set(manY, manX, Air);
-		}
-
-//		System.out.println("Open water: " + Integer.toString(openWater));
+		board.undo(dy, dx, SokobanBoard.push(lastMove));
 
+		repaint(manY - dy, manX - dx);
 		repaint(manY, manX);
 
-		manX = newX;
-		manY = newY;
-
-		if (solved())
+		if (SokobanBoard.push(lastMove))
 		{
-			solvedAlert.setTitle("Level " + Integer.toString(level) + " solved");
-			display.setCurrent(solvedAlert);
-			setLevel(++level);
-			byte[] x = new byte[1];
-			x[0] = (new Integer(level)).byteValue();
-			savePosition();
+			repaint(manY + dy, manX + dx);
+			canvas.repaintStatus();
 		}
 
+		checkSolved();
+
 		return true;
 	}
 
-	boolean push(char c)
+	public boolean redo()
 	{
-		return 'U' == c || 'D' == c || 'L' == c || 'R' == c;
-	}
+		if (!history.canRedo())
+			return false;
 
-	int xDelta(char c)
-	{
-		if ('r' == c || 'R' == c)
-			return 1;
-		if ('l' == c || 'L' == c)
-			return -1;
+		char nextMove = history.redo();
 
-		return 0;
-	}
+		if (0 == step(SokobanBoard.yDelta(nextMove), SokobanBoard.xDelta(nextMove)))
+		{
+			history.undo();
+			return false;
+		}
 
-	int yDelta(char c)
-	{
-		if ('d' == c || 'D' == c)
-			return 1;
-		if ('u' == c || 'U' == c)
-			return -1;
+		journal.record('+');
+		hint.moved(nextMove);
+
+		if (metrics != null)
+		{
+			metrics.count(SokobanMetrics.Redos);
+			metrics.depth(history.size());
+		}
+
+		checkSolved();
 
-		return 0;
+		return true;
 	}
 
-	char moveCharacter(int dy, int dx, boolean push)
+	/*
+	 * Make a move read back by the journal, without painting or checking
+	 * anything.
+	 */
+	void replay(char c)
 	{
-		if (push)
+		if ('-' == c)
 		{
-			if (-1 == dy)
-				return 'U';
-			else if (1 == dy)
-				return 'D';
-			else if (-1 == dx)
-				return 'L';
-			else if (1 == dx)
-				return 'R';
+			if (history.canUndo())
+			{
+				c = history.undo();
+				board.undo(SokobanBoard.yDelta(c), SokobanBoard.xDelta(c), SokobanBoard.push(c));
+			}
 		}
-		else
+		else if ('+' == c)
 		{
-			if (-1 == dy)
-				return 'u';
-			else if (1 == dy)
-				return 'd';
-			else if (-1 == dx)
-				return 'l';
-			else if (1 == dx)
-				return 'r';
+			if (history.canRedo())
+			{
+				c = history.redo();
+				board.move(SokobanBoard.yDelta(c), SokobanBoard.xDelta(c));
+			}
+		}
+		else if (0 != board.move(SokobanBoard.yDelta(c), SokobanBoard.xDelta(c)))
+		{
+			history.add(c);
 		}
-
-		return 'E';
 	}
 
 	public void up()
@@ -398,6 +357,101 @@ public final class Sokoban extends MIDlet implements CommandListener
 		move(0, 1);
 	}
 
+	/*
+	 * Walk the man to row, col by the shortest way that pushes nothing.
+	 * Every step is a move of its own, and is undone on its own. Returns
+	 * false if he can't get there.
+	 */
+	public boolean walkTo(int row, int col)
+	{
+		if (row < 0 || col < 0 || row >= height() || col >= width())
+			return false;
+
+		return play(board.walk(row, col));
+	}
+
+	/*
+	 * Push the block on row, col to toRow, toCol in the fewest pushes that
+	 * leave every other block where it is, walking the man round to each
+	 * side as needed. Every step is a move of its own, as above. Returns
+	 * false if there's no way to do it.
+	 */
+	public boolean pushTo(int row, int col, int toRow, int toCol)
+	{
+		if (row < 0 || col < 0 || row >= height() || col >= width())
+			return false;
+
+		if (toRow < 0 || toCol < 0 || toRow >= height() || toCol >= width())
+			return false;
+
+		return play(board.pushTo(row, col, toRow, toCol));
+	}
+
+	/*
+	 * Make each move in turn, stopping at any that is refused, and once the
+	 * level is solved, as the next level has been loaded by then and the
+	 * rest of the moves don't belong to it.
+	 */
+	private boolean play(String moves)
+	{
+		if (null == moves)
+			return false;
+
+		int playing = level;
+
+		for (int i = 0; i < moves.length(); ++i)
+		{
+			char c = moves.charAt(i);
+
+			if (!move(SokobanBoard.yDelta(c), SokobanBoard.xDelta(c)))
+				return false;
+
+			if (level != playing || solved())
+				break;
+		}
+
+		return true;
+	}
+
+	// Steps to walk to row, col, or -1 if the man can't get there.
+	public int distance(int row, int col)
+	{
+		return board.distance(row, col);
+	}
+
+	/*
+	 * Show the next move towards solving the level from here.
+	 */
+	public void hint()
+	{
+		char c = hint.next(board);
+
+		String text = "No hint";
+
+		if (c != 0)
+		{
+			text = SokobanBoard.push(c) ? "Push " : "Walk ";
+
+			if (SokobanBoard.yDelta(c) < 0)
+				text += "up";
+			else if (SokobanBoard.yDelta(c) > 0)
+				text += "down";
+			else if (SokobanBoard.xDelta(c) < 0)
+				text += "left";
+			else
+				text += "right";
+		}
+
+		// Under the board if there's room, otherwise in the way.
+		if (!canvas.showMessage(text))
+		{
+			Alert alert = new Alert("Hint");
+
+			alert.setString(text);
+			display.setCurrent(alert, canvas);
+		}
+	}
+
 	public void init() throws MIDletStateChangeException
 	{
 	}
@@ -405,6 +459,8 @@ public final class Sokoban extends MIDlet implements CommandListener
 	public void startApp()
 	{
 		undoCommand					= new Command("Undo", Command.SCREEN, 1);
+		redoCommand					= new Command("Redo", Command.SCREEN, 2);
+		hintCommand					= new Command("Hint", Command.SCREEN, 2);
 		changeLevelCommand	= new Command("Change level", Command.SCREEN, 3);
 		restartLevelCommand	= new Command("Restart level", Command.SCREEN, 4);
 		okCommand						= new Command("Ok", Command.OK, 20);
@@ -412,10 +468,26 @@ public final class Sokoban extends MIDlet implements CommandListener
 
 		level				= 0;
 
+		if ("true".equals(getAppProperty("Sokoban-Metrics")))
+			metrics = new SokobanMetrics();
+
 		canvas			= new SokobanCanvas(this);
 
-		undoData		= new Stack();
+		history			= new SokobanHistory(property("Sokoban-Undo-Limit", 4096));
+		hint				= new SokobanHint(property("Sokoban-Hint-Time", 200));
 		solvedAlert	= new Alert("");
+		stuckAlert	= new Alert("Stuck");
+
+		stuckAlert.setString("That block can't reach water now");
+
+		safePushes = "true".equals(getAppProperty("Sokoban-Safe-Pushes"));
+
+		String pack = getAppProperty("Sokoban-Pack");
+
+		if (pack != null)
+			levels = SokobanBinaryPack.open(pack);
+		else
+			levels = new SokobanLevels();
 
 		try
 		{
@@ -427,11 +499,19 @@ public final class Sokoban extends MIDlet implements CommandListener
 		}
 
 		canvas.addCommand(undoCommand);
+		canvas.addCommand(redoCommand);
+		canvas.addCommand(hintCommand);
 		canvas.addCommand(restartLevelCommand);
 		canvas.addCommand(changeLevelCommand);
 		canvas.addCommand(exitCommand);
 		canvas.setCommandListener(this);
 
+		if (metrics != null)
+		{
+			statsCommand = new Command("Stats", Command.SCREEN, 5);
+			canvas.addCommand(statsCommand);
+		}
+
 		try
 		{
 			recordStore =
@@ -443,8 +523,25 @@ public final class Sokoban extends MIDlet implements CommandListener
 			e.printStackTrace();
 		}
 
+		index = new SokobanIndex(recordStore);
+
 		loadPosition();
-		setLevel(level);
+
+		journal = new SokobanJournal(recordStore, index, history);
+
+		// Carry on with a level left part way through.
+		int resumed = journal.load();
+
+		if (resumed >= 0 && loadLevel(resumed))
+		{
+			journal.replay(this);
+		}
+		else
+		{
+			// Saved from a longer set of levels, or one that can't be played.
+			if (!nextLevel(level))
+				nextLevel(0);
+		}
 
 		display.setCurrent(canvas);
 	}
@@ -452,21 +549,43 @@ public final class Sokoban extends MIDlet implements CommandListener
 	public void pauseApp()
 	{
 //		System.out.println("pauseApp()");
+
+		flush();
 	}
 
 	public void destroyApp(boolean cond)
 	{
-		// Empty.
+		flush();
+	}
+
+	// Write out everything saved since the last time.
+	private void flush()
+	{
+		if (journal != null)
+			journal.flush();
+
+		if (index != null)
+			index.flush();
 	}
 
 	public void commandAction(Command c, Displayable d)
 	{
 		System.out.println("commandAction");
 
+		canvas.clearMessage();
+
 		if (c == undoCommand)
 		{
 			undo();
 		}
+		else if (c == redoCommand)
+		{
+			redo();
+		}
+		else if (c == hintCommand)
+		{
+			hint();
+		}
 		else if (c == exitCommand)
 		{
 			destroyApp(false);
@@ -476,6 +595,15 @@ public final class Sokoban extends MIDlet implements CommandListener
 		{
 			restartLevel();
 		}
+		else if (c == statsCommand)
+		{
+			Alert stats = new Alert("Stats");
+
+			stats.setString(metrics.snapshot().toString());
+			stats.setTimeout(Alert.FOREVER);
+
+			display.setCurrent(stats, canvas);
+		}
 		else if (c == changeLevelCommand)
 		{
 			System.out.println("Change level...");
@@ -498,67 +626,61 @@ public final class Sokoban extends MIDlet implements CommandListener
 		}
 		else if (c == okCommand && d == levelScreen)
 		{
-			setLevel(Integer.parseInt(((TextBox)levelScreen).getString()));
-			display.setCurrent(canvas);
-		}
-	}
-
-	private void loadPosition()
-	{
-		try
-		{
-			levelID = 0;
-
-			RecordEnumeration en = recordStore.enumerateRecords(null, null, false);
+			int chosen = Integer.parseInt(((TextBox)levelScreen).getString());
 
-			byte[] data = new byte[8];
-
-			while (en.hasNextElement())
+			if (setLevel(chosen))
 			{
-				int index = en.nextRecordId();
-
-				if (8 == recordStore.getRecordSize(index))
-				{
-					recordStore.getRecord(index, data, 0);
-
-					int id = getInt(data, 0);
-
-					if (HighestLevelAttainedKey == id)
-					{
-						level = getInt(data, 4);
-						levelID = index;
+				display.setCurrent(canvas);
+			}
+			else
+			{
+				Alert alert = new Alert("Change level");
 
-						break;
-					}
-				}
+				alert.setString("Level " + Integer.toString(chosen) + " can't be played");
+				display.setCurrent(alert, canvas);
 			}
 		}
-		catch (RecordStoreException e)
-		{
-			e.printStackTrace();
-		}
+
+		canvas.flush();
 	}
-	
-	private void savePosition()
+
+	// A number from the JAD if it has one, otherwise value.
+	private int property(String name, int value)
 	{
-		byte[] data = new byte[8];
-		putInt(data, 0, HighestLevelAttainedKey);
-		putInt(data, 4, level);
+		String property = getAppProperty(name);
 
 		try
 		{
-			if (0 == levelID)
-				levelID = recordStore.addRecord(data, 0, data.length);
-			else
-				recordStore.setRecord(levelID, data, 0, data.length);
+			if (property != null)
+				return Integer.parseInt(property);
 		}
-		catch (RecordStoreException e)
+		catch (NumberFormatException e)
 		{
 			e.printStackTrace();
 		}
+
+		return value;
 	}
 
-	private void putInt(byte[] buf, int offset, int value)
+	private void loadPosition()
+	{
+		byte[] data = index.get(HighestLevelAttainedKey);
+
+		if (data != null)
+			level = getInt(data, 0);
+	}
+
+	// Written out by flush(), not here, as it can take a while.
+	private void savePosition()
+	{
+		byte[] data = new byte[4];
+
+		putInt(data, 0, level);
+
+		index.put(HighestLevelAttainedKey, data);
+	}
+
+	static void putInt(byte[] buf, int offset, int value)
 	{
 		buf[offset + 0] = (byte)((value >> 24) & 0xff);
 		buf[offset + 1] = (byte)((value >> 16) & 0xff);
@@ -566,7 +688,7 @@ public final class Sokoban extends MIDlet implements CommandListener
 		buf[offset + 3] = (byte)((value >>  0) & 0xff);
 	}
 
-	private int getInt(byte[] buf, int offset)
+	static int getInt(byte[] buf, int offset)
 	{
 		return
 			(
@@ -576,819 +698,4 @@ public final class Sokoban extends MIDlet implements CommandListener
 			 (buf[offset + 3] & 0xff)
 			);
 	}
-
-	/*
-	 * # -> Wall
-	 *   -> Air
-	 * . -> Water
-	 *
-	 * $ -> Block
-	 * * -> Block on water
-	 *
-	 * @ -> Man
-	 */
-	private static final String Data[] =
-	{
-		  "########"
-		+ "## .####"
-		+ "##  ####"
-		+ "##*@  ##"
-		+ "##  $ ##"
-		+ "##  ####"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "##    ##"
-		+ "## #@ ##"
-		+ "## $* ##"
-		+ "## .* ##"
-		+ "##    ##"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "#      #"
-		+ "# .**$@#"
-		+ "#      #"
-		+ "#####  #"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "##     #"
-		+ "## .$. #"
-		+ "## $@$ #"
-		+ "#  .$. #"
-		+ "#      #"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "#     ##"
-		+ "# .$. ##"
-		+ "# $.$ ##"
-		+ "# .$. ##"
-		+ "# $.$ ##"
-		+ "#  @  ##"
-		+ "########"
-		,
-		  "########"
-		+ "##.  ###"
-		+ "##@$$ ##"
-		+ "###   ##"
-		+ "####  ##"
-		+ "#####.##"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "##     #"
-		+ "## # # #"
-		+ "##. $*@#"
-		+ "##   ###"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "## @ ###"
-		+ "##...###"
-		+ "##$$$###"
-		+ "##    ##"
-		+ "##    ##"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "#   .. #"
-		+ "#  @$$ #"
-		+ "##### ##"
-		+ "####  ##"
-		+ "####  ##"
-		+ "####  ##"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "##  ####"
-		+ "## . . #"
-		+ "## $$#@#"
-		+ "###    #"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "##  *  #"
-		+ "##     #"
-		+ "### # ##"
-		+ "###$@.##"
-		+ "###   ##"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "####   #"
-		+ "####$$@#"
-		+ "##   ###"
-		+ "##     #"
-		+ "## . . #"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "###  ###"
-		+ "### $$ #"
-		+ "###... #"
-		+ "##  @$ #"
-		+ "##   ###"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "### @ ##"
-		+ "###   ##"
-		+ "####$ ##"
-		+ "## ...##"
-		+ "## $$ ##"
-		+ "####  ##"
-		+ "########"
-		,
-		  "########"
-		+ "#   .###"
-		+ "# ## ###"
-		+ "#  $$@##"
-		+ "# #   ##"
-		+ "#.  ####"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "#   ####"
-		+ "# @ ####"
-		+ "# $$####"
-		+ "##. . ##"
-		+ "##    ##"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "##  ####"
-		+ "## $$ ##"
-		+ "##... ##"
-		+ "## @$ ##"
-		+ "##   ###"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "###  ###"
-		+ "##@$.###"
-		+ "# $$  ##"
-		+ "# . . ##"
-		+ "###   ##"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "###  ###"
-		+ "##     #"
-		+ "##.**$@#"
-		+ "##   ###"
-		+ "###  ###"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "##. #  #"
-		+ "##  $  #"
-		+ "##. $#@#"
-		+ "##  $  #"
-		+ "##. #  #"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "###   ##"
-		+ "###   ##"
-		+ "## $$$ #"
-		+ "## .+. #"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "#     ##"
-		+ "#@$$$ ##"
-		+ "#  #...#"
-		+ "##    ##"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "##... ##"
-		+ "##  $ ##"
-		+ "## #$###"
-		+ "##  $ ##"
-		+ "##  @ ##"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "###    #"
-		+ "##  ## #"
-		+ "## # $ #"
-		+ "##  * .#"
-		+ "### #@##"
-		+ "###   ##"
-		+ "########"
-		,
-		  "########"
-		+ "#  @ ###"
-		+ "#  # ###"
-		+ "# .#  ##"
-		+ "# .$$$ #"
-		+ "# .#   #"
-		+ "####   #"
-		+ "########"
-		,
-		  "########"
-		+ "#  #####"
-		+ "#    ###"
-		+ "#  $*@ #"
-		+ "### .# #"
-		+ "###    #"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "#### @##"
-		+ "##  $ ##"
-		+ "##  *.##"
-		+ "##  *.##"
-		+ "##  $ ##"
-		+ "####  ##"
-		+ "########"
-		,
-		  "########"
-		+ "###. .##"
-		+ "## * * #"
-		+ "##  #  #"
-		+ "## $ $ #"
-		+ "### @ ##"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "##   ###"
-		+ "##  $  #"
-		+ "###* . #"
-		+ "###   @#"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "##  ####"
-		+ "##.*$  #"
-		+ "## .$# #"
-		+ "### @  #"
-		+ "###   ##"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "#   ####"
-		+ "# #  ###"
-		+ "#@$*.###"
-		+ "##  . ##"
-		+ "## $# ##"
-		+ "###   ##"
-		+ "########"
-		,
-		  "########"
-		+ "#@     #"
-		+ "# .$$. #"
-		+ "# $..$ #"
-		+ "# $..$ #"
-		+ "# .$$. #"
-		+ "#      #"
-		+ "########"
-		,
-		  "########"
-		+ "# @#  ##"
-		+ "#.$   ##"
-		+ "#. # $##"
-		+ "#.$#   #"
-		+ "#. # $ #"
-		+ "#  #   #"
-		+ "########"
-		,
-		  "########"
-		+ "### . ##"
-		+ "### $  #"
-		+ "# . $#@#"
-		+ "# #$ . #"
-		+ "#  $ ###"
-		+ "## . ###"
-		+ "########"
-		,
-		  "########"
-		+ "#      #"
-		+ "# $*** #"
-		+ "# *  * #"
-		+ "# *  * #"
-		+ "# ***. #"
-		+ "#     @#"
-		+ "########"
-		,
-		  "########"
-		+ "#@$.   #"
-		+ "#      #"
-		+ "#      #"
-		+ "#      #"
-		+ "#      #"
-		+ "#      #"
-		+ "########"
-		,
-		  "########"
-		+ "###  . #"
-		+ "## * # #"
-		+ "## .$  #"
-		+ "##  #$##"
-		+ "### @ ##"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "##  .@ #"
-		+ "## #.# #"
-		+ "##   $ #"
-		+ "##.$$ ##"
-		+ "##  ####"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "#### @##"
-		+ "#  *$ ##"
-		+ "#     ##"
-		+ "## .####"
-		+ "##$ ####"
-		+ "## .####"
-		+ "########"
-		,
-		  "########"
-		+ "##.###.#"
-		+ "## #  .#"
-		+ "## $$ @#"
-		+ "##  $  #"
-		+ "##  #  #"
-		+ "##  ####"
-		+ "########"
-		,
-		  "########"
-		+ "#### @##"
-		+ "####   #"
-		+ "#. #$$ #"
-		+ "#     ##"
-		+ "#.  $###"
-		+ "##.  ###"
-		+ "########"
-		,
-		  "########"
-		+ "# ..####"
-		+ "# $    #"
-		+ "#  #$# #"
-		+ "# @ .$ #"
-		+ "########"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "###  .##"
-		+ "# $ # ##"
-		+ "# *$  ##"
-		+ "# .#@ ##"
-		+ "#    ###"
-		+ "#   ####"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "#.  @.##"
-		+ "#  $# ##"
-		+ "# # $. #"
-		+ "#   $# #"
-		+ "####   #"
-		+ "########"
-		,
-		  "########"
-		+ "#. .####"
-		+ "#.#$$ ##"
-		+ "#   @ ##"
-		+ "# $#  ##"
-		+ "##   ###"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "#.  ####"
-		+ "# #   ##"
-		+ "# . # ##"
-		+ "# $*$ ##"
-		+ "##@ ####"
-		+ "##  ####"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "#.   . #"
-		+ "# # #  #"
-		+ "#@$  $.#"
-		+ "##### $#"
-		+ "#####  #"
-		+ "########"
-		,
-		  "########"
-		+ "#  #####"
-		+ "#  #####"
-		+ "# .*   #"
-		+ "##$    #"
-		+ "## #$###"
-		+ "##. @###"
-		+ "########"
-		,
-		  "########"
-		+ "## @ ###"
-		+ "## .   #"
-		+ "#. $.$ #"
-		+ "##$# ###"
-		+ "##   ###"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "##   ###"
-		+ "# $# ###"
-		+ "# . @###"
-		+ "# *   ##"
-		+ "## #$ ##"
-		+ "##.  ###"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "##  ####"
-		+ "#..$  .#"
-		+ "# #$ $ #"
-		+ "#@  #  #"
-		+ "#####  #"
-		+ "########"
-		,
-		  "########"
-		+ "##  .@##"
-		+ "##   $.#"
-		+ "####*# #"
-		+ "##     #"
-		+ "#  $  ##"
-		+ "#   ####"
-		+ "########"
-		,
-		  "########"
-		+ "##@ ####"
-		+ "##  ####"
-		+ "##. ####"
-		+ "# $$. .#"
-		+ "#  $ ###"
-		+ "###  ###"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "##.  ###"
-		+ "## # ###"
-		+ "## *$  #"
-		+ "##  $. #"
-		+ "##  @###"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "###   ##"
-		+ "### #.##"
-		+ "###  .##"
-		+ "#@ $$ ##"
-		+ "#  .$ ##"
-		+ "########"
-		,
-		  "########"
-		+ "#   @###"
-		+ "# $# ###"
-		+ "# * $  #"
-		+ "#   ## #"
-		+ "##.  . #"
-		+ "###   ##"
-		+ "########"
-		,
-		  "########"
-		+ "##   @##"
-		+ "##  #  #"
-		+ "##.  $ #"
-		+ "## $$#.#"
-		+ "####  .#"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "###. ###"
-		+ "# .  ###"
-		+ "#   $$ #"
-		+ "## . $@#"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "##@.  ##"
-		+ "# $$* ##"
-		+ "#  #  ##"
-		+ "#  #  .#"
-		+ "#### # #"
-		+ "####   #"
-		+ "########"
-		,
-		  "########"
-		+ "#####  #"
-		+ "#####$.#"
-		+ "###  . #"
-		+ "###  #.#"
-		+ "# $  $ #"
-		+ "#   #@ #"
-		+ "########"
-		,
-		  "########"
-		+ "#  .####"
-		+ "# $.. ##"
-		+ "#  ##$##"
-		+ "##  #  #"
-		+ "##$   @#"
-		+ "##  ####"
-		+ "########"
-		,
-		  "########"
-		+ "###  ###"
-		+ "###  ###"
-		+ "### .. #"
-		+ "#  $#  #"
-		+ "#  .$$ #"
-		+ "#### @ #"
-		+ "########"
-		,
-		  "########"
-		+ "#   ####"
-		+ "# # *@##"
-		+ "#  *   #"
-		+ "###$   #"
-		+ "###   .#"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "### .  #"
-		+ "# $@#. #"
-		+ "#  $# ##"
-		+ "#  *  ##"
-		+ "##  # ##"
-		+ "###   ##"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "########"
-		+ "##  ####"
-		+ "#     ##"
-		+ "#  #$$@#"
-		+ "#  . *.#"
-		+ "########"
-		,
-		  "########"
-		+ "##@    #"
-		+ "#. #   #"
-		+ "# $$$.##"
-		+ "# .#  ##"
-		+ "#  #####"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "#      #"
-		+ "# # ##*#"
-		+ "# #@ $ #"
-		+ "#.$ .  #"
-		+ "#####  #"
-		+ "#####  #"
-		+ "########"
-		,
-		  "########"
-		+ "##@   ##"
-		+ "###$   #"
-		+ "### .  #"
-		+ "# $ #$##"
-		+ "# .  .##"
-		+ "####  ##"
-		+ "########"
-		,
-		  "########"
-		+ "#   ####"
-		+ "#  $  ##"
-		+ "##$$ .##"
-		+ "##@ . ##"
-		+ "### # ##"
-		+ "###  .##"
-		+ "########"
-		,
-		  "########"
-		+ "#   ####"
-		+ "# $$   #"
-		+ "# .#.  #"
-		+ "#  ## ##"
-		+ "#  ##$##"
-		+ "# @  .##"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "########"
-		+ "# .  ###"
-		+ "# .# ###"
-		+ "# @$$  #"
-		+ "# $.   #"
-		+ "########"
-		,
-		  "########"
-		+ "# @.#  #"
-		+ "# .$ . #"
-		+ "#  #$  #"
-		+ "#  $  ##"
-		+ "###  ###"
-		+ "###  ###"
-		+ "########"
-		,
-		  "########"
-		+ "#    . #"
-		+ "# $  $@#"
-		+ "#.$.####"
-		+ "#  #####"
-		+ "#  #####"
-		+ "#  #####"
-		+ "########"
-		,
-		  "########"
-		+ "# .  ###"
-		+ "#  #@###"
-		+ "#  $ ###"
-		+ "##$#  ##"
-		+ "#   # ##"
-		+ "#. *  ##"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "#### . #"
-		+ "# *@ . #"
-		+ "# $ #  #"
-		+ "# #  $ #"
-		+ "#   ####"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "########"
-		+ "###  ###"
-		+ "# .. $.#"
-		+ "#  $$ @#"
-		+ "####   #"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "#####@ #"
-		+ "##### .#"
-		+ "# $ $ $#"
-		+ "#   .  #"
-		+ "### .  #"
-		+ "########"
-		,
-		  "########"
-		+ "#   #  #"
-		+ "# #.$ $#"
-		+ "#   $  #"
-		+ "#####. #"
-		+ "###   @#"
-		+ "###   .#"
-		+ "########"
-		,
-		  "########"
-		+ "####@ ##"
-		+ "###  ..#"
-		+ "## $#$##"
-		+ "#   $. #"
-		+ "#  #   #"
-		+ "#    ###"
-		+ "########"
-		,
-		  "########"
-		+ "#   @###"
-		+ "# $$####"
-		+ "# $ .  #"
-		+ "## #.# #"
-		+ "#.   # #"
-		+ "#      #"
-		+ "########"
-		,
-		  "########"
-		+ "####  ##"
-		+ "#### $##"
-		+ "# @$.  #"
-		+ "# ##   #"
-		+ "#   ## #"
-		+ "#   * .#"
-		+ "########"
-		,
-		  "########"
-		+ "#### @ #"
-		+ "####   #"
-		+ "## $ $##"
-		+ "## $  ##"
-		+ "#.  # ##"
-		+ "#..   ##"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "####. @#"
-		+ "#  .$  #"
-		+ "# #  ###"
-		+ "# $ $ .#"
-		+ "####   #"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "#  .# @#"
-		+ "# # $  #"
-		+ "# $.#$ #"
-		+ "## .   #"
-		+ "##  ####"
-		+ "########"
-		,
-		  "########"
-		+ "########"
-		+ "##     #"
-		+ "##.## .#"
-		+ "##*  $@#"
-		+ "##  #$ #"
-		+ "##  #  #"
-		+ "########"
-		,
-		  "########"
-		+ "#. #####"
-		+ "# $#####"
-		+ "#  #####"
-		+ "# .$ @ #"
-		+ "# .$ # #"
-		+ "###    #"
-		+ "########"
-		,
-		  "########"
-		+ "#      #"
-		+ "# #$   #"
-		+ "# $ @#.#"
-		+ "##$#.  #"
-		+ "##    .#"
-		+ "########"
-		+ "########"
-		,
-		  "########"
-		+ "#  . ###"
-		+ "#    ###"
-		+ "# #$$. #"
-		+ "#.  ## #"
-		+ "#@$ ## #"
-		+ "###    #"
-		+ "########"
-		,
-		  "  .   . "
-		+ " ..  .. "
-		+ "        "
-		+ "      . "
-		+ "     .@ "
-		+ " .      "
-		+ "  ..    "
-		+ "    ... "
-	};
 }
-
@@ -0,0 +1,216 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+import java.io.*;
+
+/*
+ * Levels from a compiled pack, which can be opened at any level without
+ * reading the ones before it.
+ *
+ * The pack starts with the bytes "SOKP" and the number of levels, then the
+ * offset of each level from the start of the pack, all as big endian ints.
+ * Each level is its width and height in a byte each, then three bits per
+ * cell, row by row, lowest bits first, in the order of Cells below. A
+ * level that couldn't be read from the text has no cells and a size of 0.
+ *
+ * Opening a level reads the header, one offset and the level itself, and
+ * skips everything else. Keep the pack stored rather than compressed in
+ * the jar so that skipping doesn't mean inflating.
+ *
+ * Packs are compiled from XSB text by SokobanPackCompiler, in tools.
+ */
+public final class SokobanBinaryPack implements SokobanSource
+{
+	static final int	Magic				= 0x534f4b50;
+	static final int	HeaderSize	= 8;
+
+	// Cell for each three bit code.
+	static final char	Cells[] =
+	{
+		SokobanBoard.Air,
+		SokobanBoard.Wall,
+		SokobanBoard.Water,
+		SokobanBoard.Block,
+		SokobanBoard.BlockOnWater,
+		SokobanBoard.Man,
+		SokobanBoard.ManOnWater
+	};
+
+	private String	resource;
+	private int			size		= -1;
+
+	public SokobanBinaryPack(String resource)
+	{
+		this.resource = resource;
+	}
+
+	/*
+	 * A compiled pack if the resource is one, otherwise XSB text.
+	 */
+	public static SokobanSource open(String resource)
+	{
+		InputStream in = SokobanBinaryPack.class.getResourceAsStream(resource);
+
+		boolean binary = false;
+
+		if (in != null)
+		{
+			try
+			{
+				binary = Magic == new DataInputStream(in).readInt();
+				in.close();
+			}
+			catch (IOException e)
+			{
+				// Too short to be compiled.
+			}
+		}
+
+		if (binary)
+			return new SokobanBinaryPack(resource);
+
+		return new SokobanPack(resource);
+	}
+
+	public synchronized int size()
+	{
+		if (size < 0)
+		{
+			DataInputStream in = header();
+
+			if (in != null)
+				close(in);
+		}
+
+		return Math.max(size, 0);
+	}
+
+	public synchronized SokobanBoard board(int level)
+	{
+		DataInputStream in = header();
+
+		if (null == in)
+			return null;
+
+		SokobanBoard board = null;
+
+		try
+		{
+			if (level >= 0 && level < size)
+			{
+				skip(in, 4 * level);
+
+				int offset = in.readInt();
+
+				skip(in, offset - (HeaderSize + 4 * level + 4));
+
+				int width		= in.readUnsignedByte();
+				int height	= in.readUnsignedByte();
+
+				board = read(in, width, height);
+			}
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+
+		close(in);
+
+		return board;
+	}
+
+	private static SokobanBoard read(DataInputStream in, int width, int height)
+		throws IOException
+	{
+		if (0 == width * height)
+			return null;
+
+		byte packed[] = new byte[(width * height * 3 + 7) >> 3];
+
+		in.readFully(packed);
+
+		char cells[] = new char[width * height];
+
+		for (int i = 0; i < cells.length; ++i)
+		{
+			int code = get(packed, i);
+
+			cells[i] = code < Cells.length ? Cells[code] : SokobanBoard.Wall;
+		}
+
+		return new SokobanBoard(new String(cells), width, height);
+	}
+
+	// Open the pack and read up to the offsets.
+	private DataInputStream header()
+	{
+		InputStream stream = getClass().getResourceAsStream(resource);
+
+		if (null == stream)
+			return null;
+
+		DataInputStream in = new DataInputStream(stream);
+
+		try
+		{
+			if (Magic == in.readInt())
+			{
+				size = in.readInt();
+				return in;
+			}
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+
+		close(in);
+
+		return null;
+	}
+
+	private static void skip(InputStream in, int count) throws IOException
+	{
+		while (count > 0)
+		{
+			long skipped = in.skip(count);
+
+			if (skipped <= 0)
+			{
+				if (in.read() < 0)
+					throw new EOFException();
+
+				skipped = 1;
+			}
+
+			count -= (int)skipped;
+		}
+	}
+
+	private static void close(InputStream in)
+	{
+		try
+		{
+			in.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	private static int get(byte[] packed, int i)
+	{
+		int bit		= i * 3;
+		int index	= bit >> 3;
+		int word	= packed[index] & 0xff;
+
+		if (index + 1 < packed.length)
+			word |= (packed[index + 1] & 0xff) << 8;
+
+		return (word >> (bit & 7)) & 7;
+	}
+}
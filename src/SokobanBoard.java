@@ -0,0 +1,617 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Bitboard model of a level.
+ *
+ * Walls, water and blocks are each a bitset with one bit per cell. The
+ * board is surrounded by a border of wall cells so that a step can never
+ * leave the grid, which means moving is just a few mask tests with no
+ * bounds checks and no character decoding.
+ */
+public final class SokobanBoard
+{
+	public static final char	Wall					= '#';
+	public static final char	Air						= ' ';
+	public static final char	Water					= '.';
+	public static final char	Block					= '$';
+	public static final char	BlockOnWater	= '*';
+	public static final char	Man						= '@';
+	public static final char	ManOnWater		= '+';
+
+	// Bits returned by move().
+	public static final int		Moved					= 1;
+	public static final int		Pushed				= 2;
+	public static final int		Dead					= 4;
+	public static final int		Frozen				= 8;
+	public static final int		Corral				= 16;
+
+	// Any of the bits above that mean the level can no longer be solved.
+	public static final int		Stuck					= Dead | Frozen | Corral;
+
+	// Move letters by direction, up, down, left, right, then the pushes.
+	private static final String	Letters			= "udlrUDLR";
+
+	private int								width;
+	private int								height;
+	private int								stride;
+	private int								cells;
+	private long[]						walls;
+	private long[]						water;
+	private long[]						blocks;
+	private long[]						dead;
+	private int[]							waterDistance;
+	private SokobanDeadlock		deadlocks;
+	private SokobanMatching		matching;
+	private int								man;
+	private int								openWater;
+	private boolean						spare;
+	private long[]						blockKeys;
+	private long[]						manKeys;
+	private long							hash;
+
+	// Where the man can walk, and the position it was flooded for.
+	private SokobanReach			reach;
+	private long							reachKey;
+
+	// Made the first time a block is moved for the player.
+	private SokobanPlanner		planner;
+
+	public SokobanBoard(String data, int width, int height)
+	{
+		this.width	= width;
+		this.height	= height;
+
+		stride	= width + 2;
+		cells		= stride * (height + 2);
+
+		int words = (cells + 63) >> 6;
+
+		walls		= new long[words];
+		water		= new long[words];
+		blocks	= new long[words];
+
+		man				= -1;
+		openWater	= 0;
+		hash			= 0;
+
+		int blockCount = 0;
+		int waterCount = 0;
+
+		blockKeys	= new long[cells];
+		manKeys		= new long[cells];
+
+		for (int cell = 0; cell < cells; ++cell)
+		{
+			int x = cell % stride - 1;
+			int y = cell / stride - 1;
+
+			blockKeys[cell]	= zobrist(2 * cell);
+			manKeys[cell]		= zobrist(2 * cell + 1);
+
+			if (x < 0 || y < 0 || x >= width || y >= height)
+			{
+				set(walls, cell);
+				continue;
+			}
+
+			char c = data.charAt(y * width + x);
+
+			if (c == Wall)
+				set(walls, cell);
+
+			if (c == Water || c == BlockOnWater || c == ManOnWater)
+			{
+				set(water, cell);
+				waterCount++;
+			}
+
+			if (c == Block || c == BlockOnWater)
+			{
+				set(blocks, cell);
+				hash ^= blockKeys[cell];
+				blockCount++;
+			}
+
+			if (c == Man || c == ManOnWater)
+				man = cell;
+
+			if (c == Water || c == ManOnWater)
+				openWater++;
+		}
+
+		spare = blockCount > waterCount;
+
+		pull();
+
+		deadlocks	= new SokobanDeadlock(this);
+		matching	= new SokobanMatching(this);
+
+		matching.reset(blocks, 0);
+	}
+
+	/*
+	 * Pushes needed to get a block from each square to the nearest water,
+	 * ignoring other blocks, found by pulling blocks backwards away from the
+	 * water. Squares a block can never be pushed to water from are dead,
+	 * unless there are more blocks than water: then a block can be left
+	 * anywhere, so no square is dead.
+	 */
+	private void pull()
+	{
+		int queue[]	= new int[cells];
+		int step[]	= { -stride, stride, -1, 1 };
+
+		int head = 0;
+		int tail = 0;
+
+		dead					= new long[walls.length];
+		waterDistance	= new int[cells];
+
+		for (int cell = 0; cell < cells; ++cell)
+		{
+			waterDistance[cell] = Integer.MAX_VALUE;
+
+			if (has(water, cell))
+			{
+				waterDistance[cell] = 0;
+				queue[tail++] = cell;
+			}
+		}
+
+		while (head < tail)
+		{
+			int cell = queue[head++];
+
+			for (int d = 0; d < 4; ++d)
+			{
+				int block	= cell - step[d];
+				int man		= block - step[d];
+
+				if (has(walls, block) || has(walls, man))
+					continue;
+
+				if (waterDistance[block] != Integer.MAX_VALUE)
+					continue;
+
+				waterDistance[block] = waterDistance[cell] + 1;
+				queue[tail++] = block;
+			}
+		}
+
+		for (int cell = 0; cell < cells; ++cell)
+		{
+			if (!spare && !has(walls, cell) && waterDistance[cell] == Integer.MAX_VALUE)
+				set(dead, cell);
+		}
+	}
+
+	public int width()
+	{
+		return width;
+	}
+
+	public int height()
+	{
+		return height;
+	}
+
+	public int manX()
+	{
+		return man % stride - 1;
+	}
+
+	public int manY()
+	{
+		return man / stride - 1;
+	}
+
+	public int openWater()
+	{
+		return openWater;
+	}
+
+	public boolean solved()
+	{
+		return 0 == openWater;
+	}
+
+	/*
+	 * The fewest pushes that could still solve the level, or -1 if the
+	 * water can't all be covered any more. See SokobanMatching.
+	 */
+	public int pushesLeft()
+	{
+		return matching.bound();
+	}
+
+	/*
+	 * True if a block on this square can never be pushed onto water.
+	 */
+	public boolean dead(int row, int col)
+	{
+		return has(dead, cell(row, col));
+	}
+
+	/*
+	 * Steps the man needs to walk to row, col without pushing anything, or
+	 * -1 if he can't get there.
+	 */
+	public int distance(int row, int col)
+	{
+		return reach().distance(cell(row, col));
+	}
+
+	/*
+	 * The shortest walk to row, col that pushes nothing, in u, d, l and r,
+	 * or null if there isn't one.
+	 */
+	public String walk(int row, int col)
+	{
+		int						cell			= cell(row, col);
+		SokobanReach	reach			= reach();
+		int						distance	= reach.distance(cell);
+
+		if (distance < 0)
+			return null;
+
+		char steps[] = new char[distance];
+
+		for (int k = distance - 1; k >= 0; --k)
+		{
+			int a = reach.arrival(cell);
+
+			steps[k] = letter(a, false);
+			cell -= yStep(a) * stride + xStep(a);
+		}
+
+		return new String(steps);
+	}
+
+	/*
+	 * The fewest pushes, with the walks between them, that get the block on
+	 * row, col to toRow, toCol without moving any other, in LURD letters, or
+	 * null if there is no way. See SokobanPlanner.
+	 */
+	public String pushTo(int row, int col, int toRow, int toCol)
+	{
+		if (null == planner)
+			planner = new SokobanPlanner(this);
+
+		return planner.plan(cell(row, col), cell(toRow, toCol));
+	}
+
+	// The man's walks, only flooded again once he or a block has moved.
+	private SokobanReach reach()
+	{
+		long key = hash ^ manKeys[man];
+
+		if (null == reach)
+			reach = new SokobanReach(this);
+		else if (key == reachKey)
+			return reach;
+
+		reach.fill(blocks, 0, man);
+		reachKey = key;
+
+		return reach;
+	}
+
+	/*
+	 * Zobrist hash of the block positions, kept up to date by move() and
+	 * undo(). Combine with the key for the man's square to tell positions
+	 * apart.
+	 */
+	public long hash()
+	{
+		return hash;
+	}
+
+	public char data(int row, int col)
+	{
+		int cell = cell(row, col);
+
+		if (has(walls, cell))
+			return Wall;
+
+		if (has(blocks, cell))
+			return has(water, cell) ? BlockOnWater : Block;
+
+		if (cell == man)
+			return has(water, cell) ? ManOnWater : Man;
+
+		return has(water, cell) ? Water : Air;
+	}
+
+	/*
+	 * Step the man by (dy, dx), pushing a block if there is one in the way.
+	 * Returns 0 if the move is not possible, otherwise Moved, plus Pushed if
+	 * a block was moved and Dead, Frozen or Corral if the push left the level
+	 * unsolvable.
+	 */
+	public int move(int dy, int dx)
+	{
+		int step	= dy * stride + dx;
+		int to		= man + step;
+
+		if (has(walls, to))
+			return 0;
+
+		int result = Moved;
+
+		if (has(blocks, to))
+		{
+			int beyond = to + step;
+
+			if (has(walls, beyond) || has(blocks, beyond))
+				return 0;
+
+			clear(blocks, to);
+			set(blocks, beyond);
+
+			hash ^= blockKeys[to] ^ blockKeys[beyond];
+
+			matching.move(to, beyond);
+
+			if (has(dead, beyond))
+			{
+				result |= Dead;
+			}
+			else
+			{
+				switch (deadlocks.check(blocks, 0, beyond, to))
+				{
+					case SokobanDeadlock.Frozen:
+						result |= Frozen;
+						break;
+					case SokobanDeadlock.Corral:
+						result |= Corral;
+						break;
+				}
+			}
+
+			if (has(water, to))
+				openWater++;
+
+			if (has(water, beyond))
+				openWater--;
+
+			result |= Pushed;
+		}
+
+		man = to;
+
+		return result;
+	}
+
+	/*
+	 * Reverse a move previously made by move(dy, dx).
+	 */
+	public void undo(int dy, int dx, boolean push)
+	{
+		int step = dy * stride + dx;
+
+		if (push)
+		{
+			int block = man + step;
+
+			clear(blocks, block);
+			set(blocks, man);
+
+			hash ^= blockKeys[block] ^ blockKeys[man];
+
+			matching.move(block, man);
+
+			if (has(water, block))
+				openWater++;
+
+			if (has(water, man))
+				openWater--;
+		}
+
+		man -= step;
+	}
+
+	static boolean push(char c)
+	{
+		return 'U' == c || 'D' == c || 'L' == c || 'R' == c;
+	}
+
+	static int xDelta(char c)
+	{
+		if ('r' == c || 'R' == c)
+			return 1;
+		if ('l' == c || 'L' == c)
+			return -1;
+
+		return 0;
+	}
+
+	static int yDelta(char c)
+	{
+		if ('d' == c || 'D' == c)
+			return 1;
+		if ('u' == c || 'U' == c)
+			return -1;
+
+		return 0;
+	}
+
+	static char moveCharacter(int dy, int dx, boolean push)
+	{
+		if (push)
+		{
+			if (-1 == dy)
+				return 'U';
+			else if (1 == dy)
+				return 'D';
+			else if (-1 == dx)
+				return 'L';
+			else if (1 == dx)
+				return 'R';
+		}
+		else
+		{
+			if (-1 == dy)
+				return 'u';
+			else if (1 == dy)
+				return 'd';
+			else if (-1 == dx)
+				return 'l';
+			else if (1 == dx)
+				return 'r';
+		}
+
+		return 'E';
+	}
+
+	/*
+	 * Directions by number, in the order SokobanReach and the solvers step
+	 * in: 0 up, 1 down, 2 left, 3 right.
+	 */
+	static int yStep(int d)
+	{
+		return d < 2 ? d * 2 - 1 : 0;
+	}
+
+	static int xStep(int d)
+	{
+		return d < 2 ? 0 : d * 2 - 5;
+	}
+
+	static char letter(int d, boolean push)
+	{
+		return Letters.charAt(push ? d + 4 : d);
+	}
+
+	// The direction of a move letter, or -1 if it isn't one.
+	static int direction(char c)
+	{
+		int i = Letters.indexOf(c);
+
+		return i < 0 ? -1 : i & 3;
+	}
+
+	int cell(int row, int col)
+	{
+		return (row + 1) * stride + col + 1;
+	}
+
+	int stride()
+	{
+		return stride;
+	}
+
+	int cells()
+	{
+		return cells;
+	}
+
+	int man()
+	{
+		return man;
+	}
+
+	long[] walls()
+	{
+		return walls;
+	}
+
+	long[] water()
+	{
+		return water;
+	}
+
+	long[] blocks()
+	{
+		return blocks;
+	}
+
+	long[] dead()
+	{
+		return dead;
+	}
+
+	// True if there are more blocks than water.
+	boolean spare()
+	{
+		return spare;
+	}
+
+	int[] waterDistance()
+	{
+		return waterDistance;
+	}
+
+	long[] blockKeys()
+	{
+		return blockKeys;
+	}
+
+	long[] manKeys()
+	{
+		return manKeys;
+	}
+
+	// Fixed pseudo random keys, the same for every board of a given size.
+	private static long zobrist(int i)
+	{
+		long z = (i + 1) * 0x9e3779b97f4a7c15L;
+
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+
+		return z ^ (z >>> 31);
+	}
+
+	static boolean has(long[] set, int cell)
+	{
+		return 0 != (set[cell >> 6] & (1L << cell));
+	}
+
+	// The same for a set that starts at word offset of a bigger array.
+	static boolean has(long[] set, int offset, int cell)
+	{
+		return 0 != (set[offset + (cell >> 6)] & (1L << cell));
+	}
+
+	static void set(long[] set, int cell)
+	{
+		set[cell >> 6] |= 1L << cell;
+	}
+
+	static void clear(long[] set, int cell)
+	{
+		set[cell >> 6] &= ~(1L << cell);
+	}
+
+	static void set(long[] set, int offset, int cell)
+	{
+		set[offset + (cell >> 6)] |= 1L << cell;
+	}
+
+	static void clear(long[] set, int offset, int cell)
+	{
+		set[offset + (cell >> 6)] &= ~(1L << cell);
+	}
+
+	// Index of the only bit set in bit.
+	static int bitIndex(long bit)
+	{
+		int index = 0;
+
+		for (int width = 32; width > 0; width >>= 1)
+		{
+			if (0 == (bit & ((1L << width) - 1)))
+			{
+				index += width;
+				bit >>>= width;
+			}
+		}
+
+		return index;
+	}
+}
@@ -6,52 +6,443 @@
 import javax.microedition.lcdui.*;
 import java.util.*;
 
+/*
+ * Pressing 7 picks a square for the man to walk to: the direction keys
+ * move a cursor, green where he can get to and red where he can't, and 5
+ * or 7 again walks him there. Picking a block instead marks it, and then
+ * picking a square pushes it there, walking the man round it as needed.
+ * On a touch screen, touching a square does the same.
+ *
+ * Cells that change are only marked by repaint(y, x). Everything marked
+ * while handling a key goes out as one repaint of the box around it, plus
+ * one for the status line if that changed, when flush() is called.
+ *
+ * A board too big for the screen is shown through a view that keeps the
+ * man at least Margin cells from its edge. The view is drawn into an
+ * off-screen buffer, which paint() copies out. When the view moves the
+ * buffer is drawn, shifted, into a spare one and only the cells that have
+ * come into view are drawn, then the two are swapped. There is no
+ * copyArea() in MIDP 1, and an image can't be drawn into itself.
+ *
+ * All the pictures come from one image, tiles.png, with floor, wall,
+ * water, block and man side by side. The cell size is the biggest that
+ * fits the board on screen, up to the size they are drawn at. The seven
+ * kinds of cell are put together once, then scaled to the cell size into
+ * an atlas that is kept until the size changes, and each cell is a blit
+ * of its part of the atlas.
+ */
 public final class SokobanCanvas extends Canvas
 {
+	private static final int	Margin				= 2;
+	private static final int	MinCellSize		= 8;
+
+	// Which pictures in tiles.png make up each kind of cell, bottom first,
+	// in the order tile() numbers them.
+	private static final int	Layers[][] =
+	{
+		{ 0 },
+		{ 1 },
+		{ 2 },
+		{ 0, 3 },
+		{ 2, 3 },
+		{ 0, 4 },
+		{ 2, 4 }
+	};
+
 	private Sokoban	sokoban;
+	private SokobanMetrics	metrics;
 	private int			cellSize;
-	private Image		imageSokoban;
-	private Image		imageWall;
-	private Image		imageWater;
-	private Image		imageAir;
-	private Image		imageBlock;
+	private Image		source;
 	private int			xOffset = 0;
 	private int			yOffset = 0;
+	private Font		font;
+	private int			statusY;
+
+	// Box around the cells marked since the last flush(), empty when left
+	// is past right.
+	private int			left		= Integer.MAX_VALUE;
+	private int			right		= Integer.MIN_VALUE;
+	private int			top			= Integer.MAX_VALUE;
+	private int			bottom	= Integer.MIN_VALUE;
+	private boolean	status;
+
+	// Shown instead of the pushes left until the next key.
+	private String	message;
+
+	// The square picked to walk to, while picking one.
+	private boolean	choosing;
+	private int			cursorX;
+	private int			cursorY;
+
+	// The block picked to push, while picking where to.
+	private boolean	picked;
+	private int			blockX;
+	private int			blockY;
+
+	// Each kind of cell side by side, as drawn and scaled to atlasSize.
+	private Image		tiles;
+	private Image		atlas;
+	private int			atlasSize;
+
+	// First cell in view and how many cells are shown across and down.
+	private int			viewX;
+	private int			viewY;
+	private int			columns;
+	private int			rows;
+
+	// Only for boards bigger than the screen. Stale until first painted.
+	private Image		buffer;
+	private Image		spare;
+	private boolean	stale;
 
 	public SokobanCanvas(Sokoban sokoban) 
 	{
 		this.sokoban = sokoban;
+		this.metrics = sokoban.metrics();
 
 		try
 		{
-			imageSokoban	= Image.createImage("/sokoban.png");
-			imageWall			= Image.createImage("/wall.png");
-			imageWater		= Image.createImage("/water.png");
-			imageAir			= Image.createImage("/air.png");
-			imageBlock		= Image.createImage("/block.png");
+			source = Image.createImage("/tiles.png");
 		}
 		catch (java.io.IOException e)
 		{
 			System.out.println("Can't load images");
 		}
+
+		font = Font.getFont(Font.FACE_SYSTEM, Font.STYLE_PLAIN, Font.SIZE_SMALL);
 	}
 
 	public void reset(int width, int height)
 	{
-		cellSize = 15;
+		// Boards that would need smaller cells than MinCellSize scroll.
+		cellSize = Math.min(getWidth() / width, (getHeight() - font.getHeight()) / height);
+		cellSize = Math.max(MinCellSize, Math.min(cellSize, tileSize()));
+
+		makeAtlas();
+
+		columns = Math.max(1, Math.min(width, getWidth() / cellSize));
+
+		// Leave room for the pushes left when scrolling up and down.
+		if (height * cellSize <= getHeight())
+			rows = height;
+		else
+			rows = Math.max(1, (getHeight() - font.getHeight()) / cellSize);
+
+		int spareHeight = getHeight() - rows * cellSize;
+
+		xOffset = (getWidth() - columns * cellSize) / 2;
+
+		// Put the pushes left under the board, if there is room.
+		if (spareHeight >= font.getHeight())
+		{
+			yOffset = (spareHeight - font.getHeight()) / 2;
+			statusY = yOffset + rows * cellSize;
+		}
+		else
+		{
+			yOffset = spareHeight / 2;
+			statusY = -1;
+		}
+
+		viewX = 0;
+		viewY = 0;
+
+		if (columns < width || rows < height)
+		{
+			int bufferWidth		= columns	* cellSize;
+			int bufferHeight	= rows		* cellSize;
+
+			if
+				(
+				 null == buffer
+				 ||
+				 buffer.getWidth() != bufferWidth
+				 ||
+				 buffer.getHeight() != bufferHeight
+				)
+			{
+				buffer	= null;
+				spare		= null;
+				buffer	= Image.createImage(bufferWidth, bufferHeight);
+				spare		= Image.createImage(bufferWidth, bufferHeight);
+			}
+		}
+		else
+		{
+			buffer	= null;
+			spare		= null;
+		}
 
-		xOffset = (getWidth()		- (width	* cellSize)) / 2;
-		yOffset = (getHeight()	- (height	* cellSize)) / 2;
+		stale = true;
+
+		left		= Integer.MAX_VALUE;
+		right		= Integer.MIN_VALUE;
+		top			= Integer.MAX_VALUE;
+		bottom	= Integer.MIN_VALUE;
+		status		= false;
+		message		= null;
+		choosing	= false;
+		picked		= false;
 
 		repaint();
 	}
 
+	public void repaintStatus()
+	{
+		status = statusY >= 0;
+	}
+
+	/*
+	 * Show text where the pushes left go. Returns false if there is no room
+	 * for it.
+	 */
+	public boolean showMessage(String text)
+	{
+		if (statusY < 0)
+			return false;
+
+		message = text;
+		repaintStatus();
+
+		return true;
+	}
+
+	public void clearMessage()
+	{
+		if (message != null)
+		{
+			message = null;
+			repaintStatus();
+		}
+	}
+
+	/*
+	 * Ask for everything marked since last time to be painted.
+	 */
+	public void flush()
+	{
+		boolean scrolled = false;
+
+		if (buffer != null && !stale)
+		{
+			int x = viewX;
+			int y = viewY;
+
+			follow();
+
+			if (x != viewX || y != viewY)
+			{
+				scroll(viewX - x, viewY - y);
+				scrolled = true;
+			}
+		}
+
+		// The part of the box that is in view.
+		int x0 = Math.max(left,		viewX);
+		int y0 = Math.max(top,		viewY);
+		int x1 = Math.min(right,	viewX + columns	- 1);
+		int y1 = Math.min(bottom,	viewY + rows		- 1);
+
+		if (x0 <= x1 && y0 <= y1)
+		{
+			if (buffer != null && !stale)
+				paintCells(buffer.getGraphics(), x0, y0, x1 + 1, y1 + 1, 0, 0);
+
+			if (!scrolled)
+			{
+				if (metrics != null)
+					metrics.count(SokobanMetrics.Repaints);
+
+				repaint
+					(
+					 (x0 - viewX) * cellSize + xOffset,
+					 (y0 - viewY) * cellSize + yOffset,
+					 (x1 - x0 + 1) * cellSize,
+					 (y1 - y0 + 1) * cellSize
+					);
+			}
+		}
+
+		if (scrolled)
+		{
+			if (metrics != null)
+				metrics.count(SokobanMetrics.Repaints);
+
+			repaint(xOffset, yOffset, columns * cellSize, rows * cellSize);
+		}
+
+		left		= Integer.MAX_VALUE;
+		right		= Integer.MIN_VALUE;
+		top			= Integer.MAX_VALUE;
+		bottom	= Integer.MIN_VALUE;
+
+		if (status)
+		{
+			if (metrics != null)
+				metrics.count(SokobanMetrics.Repaints);
+
+			repaint(0, statusY, getWidth(), font.getHeight());
+			status = false;
+		}
+	}
+
 	protected void keyRepeated(int keyCode)
 	{
 		keyPressed(keyCode);
 	}
 
 	protected void keyPressed(int keyCode)
+	{
+		clearMessage();
+
+		if (choosing)
+			choose(keyCode);
+		else
+			key(keyCode);
+
+		flush();
+	}
+
+	protected void pointerPressed(int x, int y)
+	{
+		clearMessage();
+
+		if (x >= xOffset && y >= yOffset)
+		{
+			int col = (x - xOffset) / cellSize;
+			int row = (y - yOffset) / cellSize;
+
+			if (col < columns && row < rows)
+			{
+				if (!choosing)
+					startChoosing();
+
+				repaint(cursorY, cursorX);
+
+				cursorX = col + viewX;
+				cursorY = row + viewY;
+
+				select();
+			}
+		}
+
+		flush();
+	}
+
+	// Keys while picking a square to walk to.
+	private void choose(int keyCode)
+	{
+		switch (getGameAction(keyCode))
+		{
+			case Canvas.LEFT:
+				moveCursor(0, -1);
+				return;
+			case Canvas.RIGHT:
+				moveCursor(0, 1);
+				return;
+			case Canvas.UP:
+				moveCursor(-1, 0);
+				return;
+			case Canvas.DOWN:
+				moveCursor(1, 0);
+				return;
+			case Canvas.FIRE:
+				select();
+				return;
+			default:
+				break;
+		}
+
+		switch (keyCode)
+		{
+			case KEY_NUM2:
+				moveCursor(-1, 0);
+				break;
+			case KEY_NUM8:
+				moveCursor(1, 0);
+				break;
+			case KEY_NUM4:
+				moveCursor(0, -1);
+				break;
+			case KEY_NUM6:
+				moveCursor(0, 1);
+				break;
+			case KEY_NUM5:
+			case KEY_NUM7:
+				select();
+				break;
+			default:
+				stopChoosing();
+				break;
+		}
+	}
+
+	private void startChoosing()
+	{
+		choosing	= true;
+		cursorX		= sokoban.manX();
+		cursorY		= sokoban.manY();
+
+		repaint(cursorY, cursorX);
+	}
+
+	private void stopChoosing()
+	{
+		if (!choosing)
+			return;
+
+		choosing = false;
+		repaint(cursorY, cursorX);
+
+		if (picked)
+		{
+			picked = false;
+			repaint(blockY, blockX);
+		}
+	}
+
+	private void moveCursor(int dy, int dx)
+	{
+		repaint(cursorY, cursorX);
+
+		cursorX = Math.max(0, Math.min(cursorX + dx, sokoban.width() - 1));
+		cursorY = Math.max(0, Math.min(cursorY + dy, sokoban.height() - 1));
+
+		repaint(cursorY, cursorX);
+	}
+
+	// Walk to the cursor, pick the block under it or push the picked one there.
+	private void select()
+	{
+		if (picked)
+		{
+			stopChoosing();
+
+			if (!sokoban.pushTo(blockY, blockX, cursorY, cursorX))
+				showMessage("Can't push it there");
+
+			return;
+		}
+
+		char c = sokoban.data(cursorY, cursorX);
+
+		if (SokobanBoard.Block == c || SokobanBoard.BlockOnWater == c)
+		{
+			picked	= true;
+			blockX	= cursorX;
+			blockY	= cursorY;
+
+			repaint(blockY, blockX);
+			return;
+		}
+
+		stopChoosing();
+
+		if (!sokoban.walkTo(cursorY, cursorX))
+			showMessage("Can't get there");
+	}
+
+	private void key(int keyCode)
 	{
 		//System.out.println("Key: " + Integer.toString(keyCode));
 
@@ -92,83 +483,346 @@ public final class SokobanCanvas extends Canvas
 			case KEY_STAR:
 				sokoban.undo();
 				break;
+			case KEY_NUM3:
+			case KEY_POUND:
+				sokoban.redo();
+				break;
 			case KEY_NUM0:
 				sokoban.restartLevel();
 				break;
+			case KEY_NUM9:
+				sokoban.hint();
+				break;
+			case KEY_NUM7:
+				startChoosing();
+				break;
 		}
 	}
 
 	public void repaint(int y, int x)
 	{
-		repaint
-			(
-			 x * cellSize	+ xOffset,
-			 y * cellSize + yOffset,
-			 cellSize,
-			 cellSize
-			);
+		left		= Math.min(left,		x);
+		right		= Math.max(right,		x);
+		top			= Math.min(top,			y);
+		bottom	= Math.max(bottom,	y);
 	}
 
 	protected void paint(Graphics g)
 	{
-		int clipX0	= (g.getClipX()				- xOffset)	/ cellSize;
-		int clipY0	= (g.getClipY()				- yOffset)	/ cellSize;
-		int clipX1	= (g.getClipWidth())							/ cellSize + clipX0;
-		int clipY1	= (g.getClipHeight())							/ cellSize + clipY0;
+		long begin = null == metrics ? 0 : System.currentTimeMillis();
+
+		if (buffer != null)
+		{
+			if (stale)
+			{
+				follow();
+				paintCells
+					(buffer.getGraphics(), viewX, viewY, viewX + columns, viewY + rows, 0, 0);
+
+				stale = false;
+			}
+
+			g.drawImage(buffer, xOffset, yOffset, 0);
+		}
+		else
+		{
+			int clipX0	= (g.getClipX()				- xOffset)	/ cellSize;
+			int clipY0	= (g.getClipY()				- yOffset)	/ cellSize;
+			int clipX1	= (g.getClipX() + g.getClipWidth()	- xOffset + cellSize - 1) / cellSize;
+			int clipY1	= (g.getClipY() + g.getClipHeight()	- yOffset + cellSize - 1) / cellSize;
+
+			paintCells
+				(
+				 g,
+				 Math.max(clipX0, 0),
+				 Math.max(clipY0, 0),
+				 Math.min(clipX1, sokoban.width()),
+				 Math.min(clipY1, sokoban.height()),
+				 xOffset,
+				 yOffset
+				);
+		}
 
-		if (clipX0 < 0)
-			clipX0 = 0;
+		paintMargins(g);
 
-		if (clipY0 < 0)
-			clipY0 = 0;
+		if (choosing)
+			paintCursor(g);
 
-		if (clipX1 > 8)
-			clipX1 = 8;
+		if (statusY >= 0 && g.getClipY() + g.getClipHeight() > statusY)
+			paintStatus(g);
 
-		if (clipY1 > 8)
-			clipY1 = 8;
+		if (metrics != null)
+		{
+			metrics.count(SokobanMetrics.Paints);
+			metrics.time(SokobanMetrics.PaintTime, System.currentTimeMillis() - begin);
+		}
+	}
 
-		for (int y = clipY0; y < clipY1; ++y)
+	/*
+	 * Paint the cells from x0, y0 up to but not including x1, y1, with the
+	 * first cell in view at paintX, paintY.
+	 */
+	private void paintCells
+		(Graphics g, int x0, int y0, int x1, int y1, int paintX, int paintY)
+	{
+		if (null == atlas)
+			return;
+
+		int clipX				= g.getClipX();
+		int clipY				= g.getClipY();
+		int clipWidth		= g.getClipWidth();
+		int clipHeight	= g.getClipHeight();
+
+		for (int y = y0; y < y1; ++y)
 		{
-			for (int x = clipX0; x < clipX1; ++x)
+			for (int x = x0; x < x1; ++x)
 			{
-				paintCell(g, x, y);
+				int tile = tile(sokoban.data(y, x));
+
+				int cellX = (x - viewX) * cellSize + paintX;
+				int cellY = (y - viewY) * cellSize + paintY;
+
+				g.setClip(clipX, clipY, clipWidth, clipHeight);
+
+				// Nothing to draw here, but the last level may have been.
+				if (tile < 0)
+				{
+					g.setColor(0xffffff);
+					g.fillRect(cellX, cellY, cellSize, cellSize);
+					continue;
+				}
+
+				g.clipRect(cellX, cellY, cellSize, cellSize);
+				g.drawImage(atlas, cellX - tile * cellSize, cellY, 0);
 			}
 		}
+
+		g.setClip(clipX, clipY, clipWidth, clipHeight);
+
+		if (metrics != null && x1 > x0 && y1 > y0)
+			metrics.count(SokobanMetrics.Cells, (x1 - x0) * (y1 - y0));
+	}
+
+	/*
+	 * Clear the screen around the board, where a level of another size
+	 * may have been. The status line is painted over it afterwards.
+	 */
+	private void paintMargins(Graphics g)
+	{
+		int boardWidth	= columns	* cellSize;
+		int boardHeight	= rows		* cellSize;
+		int boardBottom	= yOffset + boardHeight;
+		int boardRight	= xOffset + boardWidth;
+
+		g.setColor(0xffffff);
+
+		g.fillRect(0,						0,						getWidth(),								yOffset);
+		g.fillRect(0,						boardBottom,	getWidth(),								getHeight() - boardBottom);
+		g.fillRect(0,						yOffset,			xOffset,									boardHeight);
+		g.fillRect(boardRight,	yOffset,			getWidth() - boardRight,	boardHeight);
 	}
 
-	protected void paintCell(Graphics g, int x, int y)
+	/*
+	 * The view has moved by dx, dy cells. Shift what is in the buffer across
+	 * into the spare one, fill in the cells that have come into view, and
+	 * swap them over.
+	 */
+	private void scroll(int dx, int dy)
 	{
-		int paintX = x * cellSize + xOffset;
-		int paintY = y * cellSize + yOffset;
+		Graphics g = spare.getGraphics();
 
-		switch (sokoban.data(y, x))
+		if (Math.abs(dx) >= columns || Math.abs(dy) >= rows)
 		{
-			case ' ':
-				g.drawImage(imageAir,			paintX, paintY, 0);
-				break;
-			case '#':
-				g.drawImage(imageWall,		paintX, paintY, 0);
-				break;
-			case '.':
-				g.drawImage(imageWater,		paintX, paintY, 0);
-				break;
-			case '$':
-				g.drawImage(imageAir, 		paintX, paintY, 0);
-				g.drawImage(imageBlock,		paintX, paintY, 0);
-				break;
-			case '*':
-				g.drawImage(imageWater,		paintX, paintY, 0);
-				g.drawImage(imageBlock,		paintX, paintY, 0);
-				break;
-			case '@':
-				g.drawImage(imageAir,			paintX, paintY, 0);
-				g.drawImage(imageSokoban,	paintX, paintY, 0);
-				break;
-			case '+':
-				g.drawImage(imageWater,		paintX, paintY, 0);
-				g.drawImage(imageSokoban,	paintX, paintY, 0);
-				break;
+			paintCells(g, viewX, viewY, viewX + columns, viewY + rows, 0, 0);
 		}
+		else
+		{
+			g.drawImage(buffer, -dx * cellSize, -dy * cellSize, 0);
+
+			if (dx > 0)
+				paintCells(g, viewX + columns - dx, viewY, viewX + columns, viewY + rows, 0, 0);
+			else if (dx < 0)
+				paintCells(g, viewX, viewY, viewX - dx, viewY + rows, 0, 0);
+
+			if (dy > 0)
+				paintCells(g, viewX, viewY + rows - dy, viewX + columns, viewY + rows, 0, 0);
+			else if (dy < 0)
+				paintCells(g, viewX, viewY, viewX + columns, viewY - dy, 0, 0);
+		}
+
+		Image swap = buffer;
+
+		buffer	= spare;
+		spare		= swap;
+	}
+
+	// Blue while picking where to push a block, which is marked the same.
+	private void paintCursor(Graphics g)
+	{
+		if (picked)
+		{
+			g.setColor(0x0000ff);
+			paintBox(g, blockY, blockX);
+		}
+		else
+		{
+			g.setColor(sokoban.distance(cursorY, cursorX) < 0 ? 0xff0000 : 0x00c000);
+		}
+
+		paintBox(g, cursorY, cursorX);
+	}
+
+	private void paintBox(Graphics g, int y, int x)
+	{
+		g.drawRect
+			(
+			 (x - viewX) * cellSize + xOffset,
+			 (y - viewY) * cellSize + yOffset,
+			 cellSize - 1,
+			 cellSize - 1
+			);
+	}
+
+	// Move the view so the man, or the cursor, is not too near its edge.
+	private void follow()
+	{
+		int x = choosing ? cursorX : sokoban.manX();
+		int y = choosing ? cursorY : sokoban.manY();
+
+		viewX = follow(viewX, columns,	sokoban.width(),	x);
+		viewY = follow(viewY, rows,			sokoban.height(),	y);
+	}
+
+	/*
+	 * Where a view of size cells along a board length cells long should
+	 * start, to keep the man Margin cells in from its ends.
+	 */
+	private static int follow(int view, int size, int length, int man)
+	{
+		int margin = Math.min(Margin, (size - 1) / 2);
+
+		if (man < view + margin)
+			view = man - margin;
+		else if (man >= view + size - margin)
+			view = man - size + margin + 1;
+
+		return Math.max(0, Math.min(view, length - size));
+	}
+
+	protected void paintStatus(Graphics g)
+	{
+		int pushes = sokoban.pushesLeft();
+
+		String text = message;
+
+		if (null == text)
+			text = pushes < 0 ? "Stuck" : "Pushes left: " + Integer.toString(pushes);
+
+		g.setColor(0xffffff);
+		g.fillRect(0, statusY, getWidth(), font.getHeight());
+
+		g.setColor(0x000000);
+		g.setFont(font);
+		g.drawString
+			(
+			 text,
+			 getWidth() / 2,
+			 statusY,
+			 Graphics.TOP | Graphics.HCENTER
+			);
+	}
+
+	private static int tile(char c)
+	{
+		switch (c)
+		{
+			case SokobanBoard.Air:
+				return 0;
+			case SokobanBoard.Wall:
+				return 1;
+			case SokobanBoard.Water:
+				return 2;
+			case SokobanBoard.Block:
+				return 3;
+			case SokobanBoard.BlockOnWater:
+				return 4;
+			case SokobanBoard.Man:
+				return 5;
+			case SokobanBoard.ManOnWater:
+				return 6;
+			default:
+				return -1;
+		}
+	}
+
+	// The size the pictures are drawn at.
+	private int tileSize()
+	{
+		return null == source ? 15 : source.getHeight();
+	}
+
+	/*
+	 * Scale the kinds of cell to the cell size, if they aren't already. The
+	 * pixels of an image can't be read in MIDP 1, so this draws one column
+	 * at a time, clipped, from the nearest column of the tiles, and then one
+	 * row at a time from the nearest row of that.
+	 */
+	private void makeAtlas()
+	{
+		if (atlasSize == cellSize || null == source)
+			return;
+
+		int size	= tileSize();
+		int count	= Layers.length;
+
+		if (null == tiles)
+		{
+			tiles = Image.createImage(count * size, size);
+
+			Graphics g = tiles.getGraphics();
+
+			for (int i = 0; i < count; ++i)
+			{
+				g.setClip(i * size, 0, size, size);
+
+				for (int j = 0; j < Layers[i].length; ++j)
+					g.drawImage(source, (i - Layers[i][j]) * size, 0, 0);
+			}
+		}
+
+		atlas = null;
+
+		if (cellSize == size)
+		{
+			atlas = tiles;
+		}
+		else
+		{
+			int width = count * cellSize;
+
+			Image across = Image.createImage(width, size);
+
+			Graphics g = across.getGraphics();
+
+			for (int x = 0; x < width; ++x)
+			{
+				int from = x / cellSize * size + x % cellSize * size / cellSize;
+
+				g.setClip(x, 0, 1, size);
+				g.drawImage(tiles, x - from, 0, 0);
+			}
+
+			atlas = Image.createImage(width, cellSize);
+
+			g = atlas.getGraphics();
+
+			for (int y = 0; y < cellSize; ++y)
+			{
+				g.setClip(0, y, width, 1);
+				g.drawImage(across, 0, y - y * size / cellSize, 0);
+			}
+		}
+
+		atlasSize = cellSize;
 	}
 }
@@ -0,0 +1,207 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Looks for positions that can no longer be solved, starting from the block
+ * that was just pushed.
+ *
+ * A block is frozen when it can be pushed along neither axis: there is a
+ * wall on one side, dead squares on both, or a frozen block on one side,
+ * where blocks already being looked at count as walls. Frozen blocks are
+ * fine on water and a deadlock anywhere else.
+ *
+ * A corral is a patch of the board the man cannot get into. If no block in
+ * the corral next to the pushed block can be pushed from outside, nothing
+ * in it will ever change again, so empty water inside it or a block off
+ * water is a deadlock.
+ *
+ * Both rely on every block ending on water, so when there are more blocks
+ * than water nothing is ever reported.
+ *
+ * Everything works on scratch arrays allocated once per board.
+ */
+public final class SokobanDeadlock
+{
+	public static final int	None		= 0;
+	public static final int	Frozen	= 1;
+	public static final int	Corral	= 2;
+
+	private int			cells;
+	private long[]	walls;
+	private long[]	water;
+	private long[]	dead;
+	private int[]		step;
+	private boolean	spare;
+
+	// Per call state.
+	private long[]	blocks;
+	private int			offset;
+	private boolean	offWater;
+
+	private int[]		frozen;
+	private SokobanReach	reach;
+	private int[]		corral;
+	private int[]		queue;
+	private int			generation;
+
+	public SokobanDeadlock(SokobanBoard board)
+	{
+		int stride = board.stride();
+
+		cells	= board.cells();
+		walls	= board.walls();
+		water	= board.water();
+		dead	= board.dead();
+		step	= new int[] { -stride, stride, -1, 1 };
+		spare	= board.spare();
+
+		frozen	= new int[cells];
+		reach		= new SokobanReach(board);
+		corral	= new int[cells];
+		queue		= new int[cells];
+	}
+
+	/*
+	 * Check the position in blocks, read from word offset onwards, after a
+	 * push left the block at the given square and the man at man.
+	 */
+	public int check(long[] blocks, int offset, int block, int man)
+	{
+		if (spare)
+			return None;
+
+		this.blocks = blocks;
+		this.offset = offset;
+
+		if (++generation == 0)
+		{
+			for (int cell = 0; cell < cells; ++cell)
+			{
+				frozen[cell]	= 0;
+				corral[cell]	= 0;
+			}
+
+			generation = 1;
+		}
+
+		offWater = false;
+
+		if (frozen(block) && offWater)
+			return Frozen;
+
+		if (corral(block, man))
+			return Corral;
+
+		return None;
+	}
+
+	private boolean block(int cell)
+	{
+		return SokobanBoard.has(blocks, offset, cell);
+	}
+
+	private boolean frozen(int cell)
+	{
+		// Treat this block as a wall while its neighbours are looked at.
+		frozen[cell] = generation;
+
+		if (blocked(cell, step[2]) && blocked(cell, step[0]))
+		{
+			if (!SokobanBoard.has(water, cell))
+				offWater = true;
+
+			return true;
+		}
+
+		frozen[cell] = 0;
+
+		return false;
+	}
+
+	private boolean blocked(int cell, int along)
+	{
+		int a = cell - along;
+		int b = cell + along;
+
+		if (SokobanBoard.has(walls, a) || SokobanBoard.has(walls, b))
+			return true;
+
+		if (frozen[a] == generation || frozen[b] == generation)
+			return true;
+
+		if (SokobanBoard.has(dead, a) && SokobanBoard.has(dead, b))
+			return true;
+
+		if (block(a) && frozen(a))
+			return true;
+
+		if (block(b) && frozen(b))
+			return true;
+
+		return false;
+	}
+
+	private boolean corral(int block, int man)
+	{
+		// Everywhere the man can walk to.
+		reach.fill(blocks, offset, man);
+
+		// Everything else joined to the pushed block.
+		int head = 0;
+		int tail = 0;
+
+		queue[tail++] = block;
+		corral[block] = generation;
+
+		boolean stuck = false;
+
+		while (head < tail)
+		{
+			int cell = queue[head++];
+
+			if (block(cell))
+			{
+				if (!SokobanBoard.has(water, cell))
+					stuck = true;
+
+				for (int d = 0; d < 4; ++d)
+				{
+					int from	= cell - step[d];
+					int to		= cell + step[d];
+
+					if (!reach.reached(from))
+						continue;
+
+					if (SokobanBoard.has(walls, to) || block(to) || SokobanBoard.has(dead, to))
+						continue;
+
+					// This block can still be moved, so the corral can open up.
+					return false;
+				}
+			}
+			else if (SokobanBoard.has(water, cell))
+			{
+				stuck = true;
+			}
+
+			for (int d = 0; d < 4; ++d)
+			{
+				int next = cell + step[d];
+
+				if (corral[next] == generation || reach.reached(next))
+					continue;
+
+				if (SokobanBoard.has(walls, next))
+					continue;
+
+				corral[next] = generation;
+				queue[tail++] = next;
+			}
+		}
+
+		return stuck;
+	}
+}
@@ -0,0 +1,109 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Suggests the next move towards solving the level from where the player
+ * is now.
+ *
+ * Each time a hint is asked for, a search is made for a fixed time, so
+ * that asking never keeps the player waiting long. If it finds a solution
+ * the solution is followed. If not, the way to the most promising position
+ * it has found is followed instead, and the search is kept: asking again
+ * from the same position carries it on for another spell rather than
+ * starting over, so each hint there is better informed than the last.
+ *
+ * Each move the player makes that follows the way, or undo that steps
+ * back along it, just moves along it. Anything else forgets it, along
+ * with the search, and the next hint starts afresh from there.
+ */
+public final class SokobanHint
+{
+	private long						budget;
+
+	// The way being followed, whether it solves the level, and how far
+	// along it the player is.
+	private String					solution;
+	private boolean					complete;
+	private int							next;
+
+	// The search that gave a way that doesn't solve the level, and the
+	// position it started from.
+	private SokobanSolver		solver;
+	private long						from;
+
+	public SokobanHint(long budget)
+	{
+		this.budget = budget;
+	}
+
+	/*
+	 * The move to make next on board, in the letters the solver uses, or 0
+	 * if there is none.
+	 */
+	public char next(SokobanBoard board)
+	{
+		if (board.solved())
+			return 0;
+
+		if (solution != null && next < solution.length() && (complete || next > 0))
+			return solution.charAt(next);
+
+		long key = board.hash() ^ board.manKeys()[board.man()];
+
+		if (null == solver || key != from)
+		{
+			solver	= new SokobanSolver(board);
+			from		= key;
+
+			solver.setLimits(Long.MAX_VALUE, (int)(Runtime.getRuntime().freeMemory() / 2));
+		}
+
+		solution	= solver.resume(budget);
+		complete	= solution != null;
+		next			= 0;
+
+		if (!complete && solver.status() != SokobanSolver.Unsolvable)
+			solution = solver.best();
+
+		// Only a search that ran out of time can be carried on.
+		if (solver.status() != SokobanSolver.OutOfTime)
+			solver = null;
+
+		if (null == solution || 0 == solution.length())
+			return 0;
+
+		return solution.charAt(0);
+	}
+
+	/*
+	 * The player has made move c.
+	 */
+	public void moved(char c)
+	{
+		if (solution != null && next < solution.length() && c == solution.charAt(next))
+			next++;
+		else
+			forget();
+	}
+
+	/*
+	 * The player has undone move c.
+	 */
+	public void undone(char c)
+	{
+		if (solution != null && next > 0 && c == solution.charAt(next - 1))
+			next--;
+		else
+			forget();
+	}
+
+	public void forget()
+	{
+		solution	= null;
+		solver		= null;
+		next			= 0;
+	}
+}
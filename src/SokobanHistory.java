@@ -0,0 +1,189 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * The moves made so far, for undo and redo, packed three bits to a move:
+ * two for the direction and one for whether it pushed.
+ *
+ * The buffer doubles as moves are added until it holds limit moves. After
+ * that it is used as a ring and the oldest move is forgotten to make room,
+ * so a long game never needs more than limit * 3 / 8 bytes and adding a
+ * move allocates nothing.
+ *
+ * Moves that have been undone stay until a new move is added, so that they
+ * can be redone.
+ */
+public final class SokobanHistory
+{
+	private static final int	Bits		= 3;
+	private static final int	Initial	= 256;
+
+	private byte[]	data;
+	private int			capacity;
+	private int			limit;
+
+	// Ring position of the oldest move, moves held and moves not undone.
+	private int			first;
+	private int			count;
+	private int			cursor;
+	private boolean	forgotten;
+
+	public SokobanHistory(int limit)
+	{
+		// At least one move, so the ring always has room.
+		this.limit = Math.max(1, limit);
+
+		allocate(Math.min(Initial, this.limit));
+	}
+
+	public void clear()
+	{
+		first			= 0;
+		count			= 0;
+		cursor		= 0;
+		forgotten	= false;
+	}
+
+	// Moves that can be undone.
+	public int size()
+	{
+		return cursor;
+	}
+
+	// Moves held, including those undone that can be redone.
+	public int held()
+	{
+		return count;
+	}
+
+	// True unless moves have been forgotten since clear().
+	public boolean complete()
+	{
+		return !forgotten;
+	}
+
+	public boolean canUndo()
+	{
+		return cursor > 0;
+	}
+
+	public boolean canRedo()
+	{
+		return cursor < count;
+	}
+
+	/*
+	 * Record a move, given as one of u, d, l, r or U, D, L, R. Anything
+	 * that could have been redone is dropped.
+	 */
+	public void add(char move)
+	{
+		count = cursor;
+
+		if (count == capacity)
+		{
+			if (capacity < limit)
+			{
+				grow();
+			}
+			else
+			{
+				first = (first + 1) % capacity;
+				count--;
+				cursor--;
+
+				forgotten = true;
+			}
+		}
+
+		put((first + count) % capacity, encode(move));
+
+		count++;
+		cursor++;
+	}
+
+	/*
+	 * Step back over the last move and return it.
+	 */
+	public char undo()
+	{
+		return decode(get((first + --cursor) % capacity));
+	}
+
+	/*
+	 * Step forward over the next undone move and return it.
+	 */
+	public char redo()
+	{
+		return decode(get((first + cursor++) % capacity));
+	}
+
+	/*
+	 * The i'th move still held, oldest first, whether or not it has been
+	 * undone.
+	 */
+	public char move(int i)
+	{
+		return decode(get((first + i) % capacity));
+	}
+
+	private static int encode(char move)
+	{
+		int code = Math.max(0, SokobanBoard.direction(move));
+
+		return SokobanBoard.push(move) ? code | 4 : code;
+	}
+
+	private static char decode(int code)
+	{
+		return SokobanBoard.letter(code & 3, 0 != (code & 4));
+	}
+
+	private int get(int position)
+	{
+		int bit		= position * Bits;
+		int index	= bit >> 3;
+		int word	= data[index] & 0xff;
+
+		if (index + 1 < data.length)
+			word |= (data[index + 1] & 0xff) << 8;
+
+		return (word >> (bit & 7)) & 7;
+	}
+
+	private void put(int position, int code)
+	{
+		int bit		= position * Bits;
+		int index	= bit >> 3;
+		int shift	= bit & 7;
+
+		data[index] = (byte)((data[index] & ~(7 << shift)) | (code << shift));
+
+		// The rest spills over into the next byte.
+		if (shift > 8 - Bits)
+		{
+			int spill = 8 - shift;
+
+			data[index + 1] = (byte)((data[index + 1] & ~(7 >> spill)) | (code >> spill));
+		}
+	}
+
+	private void allocate(int moves)
+	{
+		capacity	= moves;
+		data			= new byte[(moves * Bits + 7) >> 3];
+	}
+
+	// Only called before the ring has wrapped, so the moves start at 0.
+	private void grow()
+	{
+		byte[] old = data;
+
+		allocate(Math.min(capacity * 2, limit));
+
+		System.arraycopy(old, 0, data, 0, old.length);
+	}
+}
@@ -0,0 +1,262 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+import javax.microedition.rms.*;
+
+/*
+ * Small keyed values kept in the Sokoban record store, found through an
+ * index instead of by looking through every record.
+ *
+ * Each value lives in a record of its own as the int key followed by the
+ * value, which is what the highest level record has always looked like.
+ * The index is record 1 of a second store, SokobanIndex: a count and then
+ * key and record id pairs. If there is no index yet it is built once by
+ * going through the records.
+ *
+ * Values are read when first asked for and kept. put() only changes the
+ * copy in memory, and nothing is written until flush(), so a slow record
+ * store is only waited for when the MIDlet is paused or stopped. Values
+ * that must not be lost if the MIDlet is killed are written at once by
+ * save() instead.
+ */
+public final class SokobanIndex
+{
+	private static final int	IndexRecord	= 1;
+
+	private RecordStore	store;
+	private RecordStore	indexStore;
+
+	private int					size;
+	private int[]				keys				= new int[8];
+	private int[]				ids					= new int[8];
+	private byte[][]		values			= new byte[8][];
+	private boolean[]		dirty				= new boolean[8];
+	private boolean			changed;
+
+	public SokobanIndex(RecordStore store)
+	{
+		this.store = store;
+
+		try
+		{
+			indexStore = RecordStore.openRecordStore("SokobanIndex", true);
+
+			if (0 == indexStore.getNumRecords())
+				rebuild();
+			else
+				read(indexStore.getRecord(IndexRecord));
+		}
+		catch (RecordStoreException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/*
+	 * The value stored under key, or null.
+	 */
+	public byte[] get(int key)
+	{
+		int i = find(key);
+
+		if (i < 0)
+			return null;
+
+		if (null == values[i])
+		{
+			try
+			{
+				byte[] data = store.getRecord(ids[i]);
+
+				values[i] = new byte[data.length - 4];
+
+				System.arraycopy(data, 4, values[i], 0, values[i].length);
+			}
+			catch (RecordStoreException e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		return values[i];
+	}
+
+	/*
+	 * True if key has a record of its own in the store.
+	 */
+	public boolean stored(int key)
+	{
+		int i = find(key);
+
+		return i >= 0 && ids[i] != 0;
+	}
+
+	/*
+	 * Store value under key when flush() is next called.
+	 */
+	public void put(int key, byte[] value)
+	{
+		int i = find(key);
+
+		if (i < 0)
+			i = add(key, 0);
+
+		values[i]	= value;
+		dirty[i]	= true;
+	}
+
+	/*
+	 * Store value under key and write it out now, with the index too if
+	 * the value is new.
+	 */
+	public void save(int key, byte[] value) throws RecordStoreException
+	{
+		put(key, value);
+
+		store(find(key));
+
+		if (changed)
+			write();
+	}
+
+	/*
+	 * Write out every value put() since the last flush, then the index if
+	 * any record ids changed.
+	 */
+	public void flush()
+	{
+		try
+		{
+			for (int i = 0; i < size; ++i)
+			{
+				if (dirty[i])
+					store(i);
+			}
+
+			if (changed)
+				write();
+		}
+		catch (RecordStoreException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	private void store(int i) throws RecordStoreException
+	{
+		byte[] data = new byte[4 + values[i].length];
+
+		Sokoban.putInt(data, 0, keys[i]);
+		System.arraycopy(values[i], 0, data, 4, values[i].length);
+
+		if (0 == ids[i])
+		{
+			ids[i]	= store.addRecord(data, 0, data.length);
+			changed	= true;
+		}
+		else
+		{
+			store.setRecord(ids[i], data, 0, data.length);
+		}
+
+		dirty[i] = false;
+	}
+
+	private int find(int key)
+	{
+		for (int i = 0; i < size; ++i)
+		{
+			if (keys[i] == key)
+				return i;
+		}
+
+		return -1;
+	}
+
+	private int add(int key, int id)
+	{
+		if (size == keys.length)
+		{
+			int[]				moreKeys		= new int[size * 2];
+			int[]				moreIds			= new int[size * 2];
+			byte[][]		moreValues	= new byte[size * 2][];
+			boolean[]		moreDirty		= new boolean[size * 2];
+
+			System.arraycopy(keys,		0, moreKeys,		0, size);
+			System.arraycopy(ids,			0, moreIds,			0, size);
+			System.arraycopy(values,	0, moreValues,	0, size);
+			System.arraycopy(dirty,		0, moreDirty,		0, size);
+
+			keys		= moreKeys;
+			ids			= moreIds;
+			values	= moreValues;
+			dirty		= moreDirty;
+		}
+
+		keys[size]	= key;
+		ids[size]		= id;
+
+		return size++;
+	}
+
+	private void read(byte[] data)
+	{
+		int count = Sokoban.getInt(data, 0);
+
+		for (int i = 0; i < count; ++i)
+			add(Sokoban.getInt(data, 4 + i * 8), Sokoban.getInt(data, 8 + i * 8));
+	}
+
+	private void write() throws RecordStoreException
+	{
+		byte[] data = new byte[4 + size * 8];
+
+		Sokoban.putInt(data, 0, size);
+
+		for (int i = 0; i < size; ++i)
+		{
+			Sokoban.putInt(data, 4 + i * 8, keys[i]);
+			Sokoban.putInt(data, 8 + i * 8, ids[i]);
+		}
+
+		if (0 == indexStore.getNumRecords())
+			indexStore.addRecord(data, 0, data.length);
+		else
+			indexStore.setRecord(IndexRecord, data, 0, data.length);
+
+		changed = false;
+	}
+
+	// Index every keyed record there is, for stores from before the index.
+	private void rebuild() throws RecordStoreException
+	{
+		RecordEnumeration en = store.enumerateRecords(null, null, false);
+
+		while (en.hasNextElement())
+		{
+			int id = en.nextRecordId();
+
+			if (store.getRecordSize(id) < 4)
+				continue;
+
+			int key = Sokoban.getInt(store.getRecord(id), 0);
+
+			// There are many of these, so the journal keeps its own list.
+			if (SokobanJournal.MovesKey == key)
+				continue;
+
+			int i = find(key);
+
+			if (i < 0)
+				add(key, id);
+			else if (id > ids[i])
+				ids[i] = id;
+		}
+
+		en.destroy();
+
+		write();
+	}
+}
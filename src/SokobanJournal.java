@@ -0,0 +1,509 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+import javax.microedition.rms.*;
+
+/*
+ * Keeps the moves made on the current level in the record store, so that
+ * a level can be carried on with after the MIDlet is stopped.
+ *
+ * Moves are written in run length LURD, the usual Sokoban notation, with
+ * a count before any letter that repeats: "3rU2d". An undo is written as
+ * '-' and a redo as '+'. Each record holds the key MovesKey, the level and
+ * up to RecordSize bytes of moves, and only ever gets appended, so saving
+ * costs one small addRecord() however long the game has gone on.
+ *
+ * The ids of the records are kept in the SokobanIndex under IdsKey, so
+ * they can be found without looking through the whole store. The list is
+ * saved, with the id the record is about to get, before each record is
+ * added, so a record is never in the store without being listed. If the
+ * MIDlet is killed in between, the id on the list has no record, or one
+ * that isn't moves, and load() leaves it out.
+ *
+ * start() doesn't touch the store, so solving a level doesn't wait for
+ * it. The old records stay listed in the store until the next write or
+ * flush() deletes them, before anything new is listed in their place.
+ *
+ * Once there are more than MaxRecords of them they are swapped for the
+ * moves still in the history, without the undos and redos that led to
+ * them, as long as the history has not had to forget any. The new records are written
+ * first, listed under SpareKey, then the lists are switched over in one
+ * write, and only then are the old records deleted. Records listed as
+ * spare but not under IdsKey are deleted by load(), so whenever the
+ * MIDlet is killed one whole set of moves or the other is kept.
+ */
+public final class SokobanJournal
+{
+	static final int					MovesKey		= 1;
+	static final int					IdsKey			= 2;
+	static final int					SpareKey		= 3;
+	private static final int	HeaderSize	= 8;
+	private static final int	RecordSize	= 256;
+	private static final int	MaxRecords	= 32;
+
+	private RecordStore			store;
+	private SokobanIndex		index;
+	private SokobanHistory	history;
+	private int							level				= -1;
+
+	// Records written for this level, oldest first.
+	private int[]						ids					= new int[MaxRecords];
+	private int							records;
+
+	// Records to be deleted, still listed in the store under IdsKey, or
+	// while compacting the ones being written.
+	private int[]						spare				= new int[MaxRecords];
+	private int							spares;
+	private boolean					compacting;
+
+	// Moves not yet written, with the current run kept apart.
+	private byte[]					pending			= new byte[HeaderSize + RecordSize];
+	private int							length;
+	private char						run;
+	private int							runLength;
+
+	// Moves read by load(), until replay().
+	private StringBuffer		saved;
+
+	public SokobanJournal(RecordStore store, SokobanIndex index, SokobanHistory history)
+	{
+		this.store		= store;
+		this.index		= index;
+		this.history	= history;
+	}
+
+	/*
+	 * Read whatever was saved. Returns the level the moves were made on, or
+	 * -1 if there aren't any.
+	 */
+	public int load()
+	{
+		records	= 0;
+		level		= -1;
+		saved		= new StringBuffer();
+
+		try
+		{
+			byte[] list = index.get(IdsKey);
+
+			if (list != null)
+			{
+				for (int i = 0; i < list.length; i += 4)
+					add(Sokoban.getInt(list, i));
+			}
+			else
+			{
+				find();
+			}
+
+			tidy();
+
+			int kept = 0;
+
+			for (int i = 0; i < records; ++i)
+			{
+				byte[] data = moves(ids[i]);
+
+				if (null == data)
+					continue;
+
+				ids[kept++] = ids[i];
+
+				level = Sokoban.getInt(data, 4);
+
+				for (int j = HeaderSize; j < data.length; ++j)
+					saved.append((char)data[j]);
+			}
+
+			if (kept < records)
+			{
+				records = kept;
+				list();
+			}
+		}
+		catch (RecordStoreException e)
+		{
+			e.printStackTrace();
+		}
+
+		return level;
+	}
+
+	/*
+	 * Make the moves read by load() on the level, which must have just been
+	 * set up, then compact the records if there are too many.
+	 */
+	public void replay(Sokoban sokoban)
+	{
+		int count = 0;
+
+		for (int i = 0; i < saved.length(); ++i)
+		{
+			char c = saved.charAt(i);
+
+			if (c >= '0' && c <= '9')
+			{
+				count = count * 10 + c - '0';
+				continue;
+			}
+
+			for (int n = Math.max(count, 1); n > 0; --n)
+				sokoban.replay(c);
+
+			count = 0;
+		}
+
+		saved = null;
+
+		if (records > MaxRecords && history.complete())
+			compact();
+	}
+
+	/*
+	 * Forget everything saved. Moves from now on are for the given level.
+	 */
+	public void start(int level)
+	{
+		this.level = level;
+
+		length		= 0;
+		runLength	= 0;
+
+		delete();
+	}
+
+	/*
+	 * Note a move, one of u, d, l, r, U, D, L, R, or '-' for an undo or '+'
+	 * for a redo.
+	 */
+	public void record(char c)
+	{
+		if (c == run && runLength > 0 && runLength < 999)
+		{
+			runLength++;
+			return;
+		}
+
+		emit();
+
+		run				= c;
+		runLength	= 1;
+	}
+
+	/*
+	 * Write out everything not yet written.
+	 */
+	public void flush()
+	{
+		emit();
+		write();
+		release();
+
+		if (records > MaxRecords && history.complete())
+			compact();
+	}
+
+	private void compact()
+	{
+		int[]	old			= ids;
+		int		count		= records;
+
+		ids					= new int[MaxRecords];
+		records			= 0;
+		length			= 0;
+		runLength		= 0;
+		compacting	= true;
+
+		// Every move held, then undo back to where the player is, so the
+		// moves that can be redone are kept too.
+		for (int i = 0; i < history.held(); ++i)
+			record(history.move(i));
+
+		for (int i = history.size(); i < history.held(); ++i)
+			record('-');
+
+		emit();
+		write();
+
+		compacting = false;
+
+		// The new records are written and listed as spare. Make them the
+		// ones in use in one write, then let the old ones go.
+		int[] written	= spare;
+		int		total		= spares;
+
+		spare		= old;
+		spares	= count;
+
+		for (int i = 0; i < total; ++i)
+			add(written[i]);
+
+		try
+		{
+			for (int i = 0; i < total; ++i)
+				spare(written[i]);
+
+			index.save(SpareKey, list(spare, spares));
+			index.save(IdsKey, list(ids, records));
+
+			tidy();
+		}
+		catch (RecordStoreException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	// Move the current run into pending, writing pending out if it is full.
+	private void emit()
+	{
+		if (0 == runLength)
+			return;
+
+		int digits = runLength > 99 ? 3 : runLength > 9 ? 2 : runLength > 1 ? 1 : 0;
+
+		if (length + digits + 1 > RecordSize)
+			write();
+
+		int at = HeaderSize + length;
+
+		for (int i = digits - 1, n = runLength; i >= 0; --i, n /= 10)
+			pending[at + i] = (byte)('0' + n % 10);
+
+		pending[at + digits] = (byte)run;
+
+		length		+= digits + 1;
+		runLength	= 0;
+	}
+
+	// List the record pending is about to become, then add it.
+	private void write()
+	{
+		if (0 == length)
+			return;
+
+		Sokoban.putInt(pending, 0, MovesKey);
+		Sokoban.putInt(pending, 4, level);
+
+		release();
+
+		try
+		{
+			// A list saved for the first time gets a record of its own, which
+			// would take the id, so give it one first.
+			if (!index.stored(compacting ? SpareKey : IdsKey))
+				save();
+
+			int id = store.getNextRecordID();
+
+			if (compacting)
+				spare(id);
+			else
+				add(id);
+
+			save();
+
+			if (store.addRecord(pending, 0, HeaderSize + length) != id)
+				throw new RecordStoreException("Record id changed");
+		}
+		catch (RecordStoreException e)
+		{
+			e.printStackTrace();
+		}
+
+		length = 0;
+	}
+
+	// Save the list the record being written goes on.
+	private void save() throws RecordStoreException
+	{
+		if (compacting)
+			index.save(SpareKey, list(spare, spares));
+		else
+			index.save(IdsKey, list(ids, records));
+	}
+
+	/*
+	 * Let every record go. They stay listed in the store until release()
+	 * deletes them, so nothing is written now.
+	 */
+	private void delete()
+	{
+		if (0 == records)
+			return;
+
+		for (int i = 0; i < records; ++i)
+			spare(ids[i]);
+
+		records = 0;
+
+		index.put(IdsKey, list(ids, records));
+	}
+
+	/*
+	 * Delete the records let go by delete(). The list in the store may name
+	 * them until the index is next written, which load() copes with.
+	 */
+	private void release()
+	{
+		if (compacting || 0 == spares)
+			return;
+
+		try
+		{
+			for (int i = 0; i < spares; ++i)
+				remove(spare[i]);
+		}
+		catch (RecordStoreException e)
+		{
+			e.printStackTrace();
+		}
+
+		spares = 0;
+	}
+
+	// Delete the spare records that aren't in use, then forget them all.
+	private void tidy() throws RecordStoreException
+	{
+		byte[] list = index.get(SpareKey);
+
+		if (null == list || 0 == list.length)
+		{
+			spares = 0;
+			return;
+		}
+
+		for (int i = 0; i < list.length; i += 4)
+		{
+			int id = Sokoban.getInt(list, i);
+
+			if (!listed(id))
+				remove(id);
+		}
+
+		spares = 0;
+
+		// Losing this only leaves ids that are gone or in use listed.
+		index.put(SpareKey, list(spare, spares));
+	}
+
+	private void remove(int id) throws RecordStoreException
+	{
+		try
+		{
+			store.deleteRecord(id);
+		}
+		catch (InvalidRecordIDException e)
+		{
+			// Already gone.
+		}
+	}
+
+	private boolean listed(int id)
+	{
+		for (int i = 0; i < records; ++i)
+		{
+			if (ids[i] == id)
+				return true;
+		}
+
+		return false;
+	}
+
+	// The moves record with this id, or null if there is no such record.
+	private byte[] moves(int id) throws RecordStoreException
+	{
+		try
+		{
+			byte[] data = store.getRecord(id);
+
+			if (data != null && data.length > HeaderSize && MovesKey == Sokoban.getInt(data, 0))
+				return data;
+		}
+		catch (InvalidRecordIDException e)
+		{
+			// Listed just before the MIDlet was killed.
+		}
+
+		return null;
+	}
+
+	// Keep the index up to date with the records there are now.
+	private void list()
+	{
+		index.put(IdsKey, list(ids, records));
+	}
+
+	private static byte[] list(int[] ids, int count)
+	{
+		byte[] list = new byte[count * 4];
+
+		for (int i = 0; i < count; ++i)
+			Sokoban.putInt(list, i * 4, ids[i]);
+
+		return list;
+	}
+
+	// Look through the store, for records saved before there was an index.
+	private void find() throws RecordStoreException
+	{
+		RecordEnumeration en = store.enumerateRecords(null, null, false);
+
+		while (en.hasNextElement())
+		{
+			int id = en.nextRecordId();
+
+			if (store.getRecordSize(id) <= HeaderSize)
+				continue;
+
+			if (MovesKey == Sokoban.getInt(store.getRecord(id), 0))
+				add(id);
+		}
+
+		en.destroy();
+
+		sort();
+	}
+
+	private void add(int id)
+	{
+		if (records == ids.length)
+			ids = grow(ids, records);
+
+		ids[records++] = id;
+	}
+
+	private void spare(int id)
+	{
+		if (spares == spare.length)
+			spare = grow(spare, spares);
+
+		spare[spares++] = id;
+	}
+
+	private static int[] grow(int[] ids, int count)
+	{
+		int[] more = new int[ids.length * 2];
+
+		System.arraycopy(ids, 0, more, 0, count);
+
+		return more;
+	}
+
+	// Record ids only go up, so this puts the records in the order written.
+	private void sort()
+	{
+		for (int i = 1; i < records; ++i)
+		{
+			int id = ids[i];
+			int j = i;
+
+			for (; j > 0 && ids[j - 1] > id; --j)
+				ids[j] = ids[j - 1];
+
+			ids[j] = id;
+		}
+	}
+}
@@ -0,0 +1,839 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * The built-in levels, kept apart from the MIDlet so that they can be
+ * used headless, without the MIDP classes. Every one is 8 by 8.
+ */
+public final class SokobanLevels implements SokobanSource
+{
+	/*
+	 * # -> Wall
+	 *   -> Air
+	 * . -> Water
+	 *
+	 * $ -> Block
+	 * * -> Block on water
+	 *
+	 * @ -> Man
+	 */
+	static final String Data[] =
+	{
+		  "########"
+		+ "## .####"
+		+ "##  ####"
+		+ "##*@  ##"
+		+ "##  $ ##"
+		+ "##  ####"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "##    ##"
+		+ "## #@ ##"
+		+ "## $* ##"
+		+ "## .* ##"
+		+ "##    ##"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "#      #"
+		+ "# .**$@#"
+		+ "#      #"
+		+ "#####  #"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "##     #"
+		+ "## .$. #"
+		+ "## $@$ #"
+		+ "#  .$. #"
+		+ "#      #"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "#     ##"
+		+ "# .$. ##"
+		+ "# $.$ ##"
+		+ "# .$. ##"
+		+ "# $.$ ##"
+		+ "#  @  ##"
+		+ "########"
+		,
+		  "########"
+		+ "##.  ###"
+		+ "##@$$ ##"
+		+ "###   ##"
+		+ "####  ##"
+		+ "#####.##"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "##     #"
+		+ "## # # #"
+		+ "##. $*@#"
+		+ "##   ###"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "## @ ###"
+		+ "##...###"
+		+ "##$$$###"
+		+ "##    ##"
+		+ "##    ##"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "#   .. #"
+		+ "#  @$$ #"
+		+ "##### ##"
+		+ "####  ##"
+		+ "####  ##"
+		+ "####  ##"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "##  ####"
+		+ "## . . #"
+		+ "## $$#@#"
+		+ "###    #"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "##  *  #"
+		+ "##     #"
+		+ "### # ##"
+		+ "###$@.##"
+		+ "###   ##"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "####   #"
+		+ "####$$@#"
+		+ "##   ###"
+		+ "##     #"
+		+ "## . . #"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "###  ###"
+		+ "### $$ #"
+		+ "###... #"
+		+ "##  @$ #"
+		+ "##   ###"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "### @ ##"
+		+ "###   ##"
+		+ "####$ ##"
+		+ "## ...##"
+		+ "## $$ ##"
+		+ "####  ##"
+		+ "########"
+		,
+		  "########"
+		+ "#   .###"
+		+ "# ## ###"
+		+ "#  $$@##"
+		+ "# #   ##"
+		+ "#.  ####"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "#   ####"
+		+ "# @ ####"
+		+ "# $$####"
+		+ "##. . ##"
+		+ "##    ##"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "##  ####"
+		+ "## $$ ##"
+		+ "##... ##"
+		+ "## @$ ##"
+		+ "##   ###"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "###  ###"
+		+ "##@$.###"
+		+ "# $$  ##"
+		+ "# . . ##"
+		+ "###   ##"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "###  ###"
+		+ "##     #"
+		+ "##.**$@#"
+		+ "##   ###"
+		+ "###  ###"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "##. #  #"
+		+ "##  $  #"
+		+ "##. $#@#"
+		+ "##  $  #"
+		+ "##. #  #"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "###   ##"
+		+ "###   ##"
+		+ "## $$$ #"
+		+ "## .+. #"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "#     ##"
+		+ "#@$$$ ##"
+		+ "#  #...#"
+		+ "##    ##"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "##... ##"
+		+ "##  $ ##"
+		+ "## #$###"
+		+ "##  $ ##"
+		+ "##  @ ##"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "###    #"
+		+ "##  ## #"
+		+ "## # $ #"
+		+ "##  * .#"
+		+ "### #@##"
+		+ "###   ##"
+		+ "########"
+		,
+		  "########"
+		+ "#  @ ###"
+		+ "#  # ###"
+		+ "# .#  ##"
+		+ "# .$$$ #"
+		+ "# .#   #"
+		+ "####   #"
+		+ "########"
+		,
+		  "########"
+		+ "#  #####"
+		+ "#    ###"
+		+ "#  $*@ #"
+		+ "### .# #"
+		+ "###    #"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "#### @##"
+		+ "##  $ ##"
+		+ "##  *.##"
+		+ "##  *.##"
+		+ "##  $ ##"
+		+ "####  ##"
+		+ "########"
+		,
+		  "########"
+		+ "###. .##"
+		+ "## * * #"
+		+ "##  #  #"
+		+ "## $ $ #"
+		+ "### @ ##"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "##   ###"
+		+ "##  $  #"
+		+ "###* . #"
+		+ "###   @#"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "##  ####"
+		+ "##.*$  #"
+		+ "## .$# #"
+		+ "### @  #"
+		+ "###   ##"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "#   ####"
+		+ "# #  ###"
+		+ "#@$*.###"
+		+ "##  . ##"
+		+ "## $# ##"
+		+ "###   ##"
+		+ "########"
+		,
+		  "########"
+		+ "#@     #"
+		+ "# .$$. #"
+		+ "# $..$ #"
+		+ "# $..$ #"
+		+ "# .$$. #"
+		+ "#      #"
+		+ "########"
+		,
+		  "########"
+		+ "# @#  ##"
+		+ "#.$   ##"
+		+ "#. # $##"
+		+ "#.$#   #"
+		+ "#. # $ #"
+		+ "#  #   #"
+		+ "########"
+		,
+		  "########"
+		+ "### . ##"
+		+ "### $  #"
+		+ "# . $#@#"
+		+ "# #$ . #"
+		+ "#  $ ###"
+		+ "## . ###"
+		+ "########"
+		,
+		  "########"
+		+ "#      #"
+		+ "# $*** #"
+		+ "# *  * #"
+		+ "# *  * #"
+		+ "# ***. #"
+		+ "#     @#"
+		+ "########"
+		,
+		  "########"
+		+ "#@$.   #"
+		+ "#      #"
+		+ "#      #"
+		+ "#      #"
+		+ "#      #"
+		+ "#      #"
+		+ "########"
+		,
+		  "########"
+		+ "###  . #"
+		+ "## * # #"
+		+ "## .$  #"
+		+ "##  #$##"
+		+ "### @ ##"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "##  .@ #"
+		+ "## #.# #"
+		+ "##   $ #"
+		+ "##.$$ ##"
+		+ "##  ####"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "#### @##"
+		+ "#  *$ ##"
+		+ "#     ##"
+		+ "## .####"
+		+ "##$ ####"
+		+ "## .####"
+		+ "########"
+		,
+		  "########"
+		+ "##.###.#"
+		+ "## #  .#"
+		+ "## $$ @#"
+		+ "##  $  #"
+		+ "##  #  #"
+		+ "##  ####"
+		+ "########"
+		,
+		  "########"
+		+ "#### @##"
+		+ "####   #"
+		+ "#. #$$ #"
+		+ "#     ##"
+		+ "#.  $###"
+		+ "##.  ###"
+		+ "########"
+		,
+		  "########"
+		+ "# ..####"
+		+ "# $    #"
+		+ "#  #$# #"
+		+ "# @ .$ #"
+		+ "########"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "###  .##"
+		+ "# $ # ##"
+		+ "# *$  ##"
+		+ "# .#@ ##"
+		+ "#    ###"
+		+ "#   ####"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "#.  @.##"
+		+ "#  $# ##"
+		+ "# # $. #"
+		+ "#   $# #"
+		+ "####   #"
+		+ "########"
+		,
+		  "########"
+		+ "#. .####"
+		+ "#.#$$ ##"
+		+ "#   @ ##"
+		+ "# $#  ##"
+		+ "##   ###"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "#.  ####"
+		+ "# #   ##"
+		+ "# . # ##"
+		+ "# $*$ ##"
+		+ "##@ ####"
+		+ "##  ####"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "#.   . #"
+		+ "# # #  #"
+		+ "#@$  $.#"
+		+ "##### $#"
+		+ "#####  #"
+		+ "########"
+		,
+		  "########"
+		+ "#  #####"
+		+ "#  #####"
+		+ "# .*   #"
+		+ "##$    #"
+		+ "## #$###"
+		+ "##. @###"
+		+ "########"
+		,
+		  "########"
+		+ "## @ ###"
+		+ "## .   #"
+		+ "#. $.$ #"
+		+ "##$# ###"
+		+ "##   ###"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "##   ###"
+		+ "# $# ###"
+		+ "# . @###"
+		+ "# *   ##"
+		+ "## #$ ##"
+		+ "##.  ###"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "##  ####"
+		+ "#..$  .#"
+		+ "# #$ $ #"
+		+ "#@  #  #"
+		+ "#####  #"
+		+ "########"
+		,
+		  "########"
+		+ "##  .@##"
+		+ "##   $.#"
+		+ "####*# #"
+		+ "##     #"
+		+ "#  $  ##"
+		+ "#   ####"
+		+ "########"
+		,
+		  "########"
+		+ "##@ ####"
+		+ "##  ####"
+		+ "##. ####"
+		+ "# $$. .#"
+		+ "#  $ ###"
+		+ "###  ###"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "##.  ###"
+		+ "## # ###"
+		+ "## *$  #"
+		+ "##  $. #"
+		+ "##  @###"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "###   ##"
+		+ "### #.##"
+		+ "###  .##"
+		+ "#@ $$ ##"
+		+ "#  .$ ##"
+		+ "########"
+		,
+		  "########"
+		+ "#   @###"
+		+ "# $# ###"
+		+ "# * $  #"
+		+ "#   ## #"
+		+ "##.  . #"
+		+ "###   ##"
+		+ "########"
+		,
+		  "########"
+		+ "##   @##"
+		+ "##  #  #"
+		+ "##.  $ #"
+		+ "## $$#.#"
+		+ "####  .#"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "###. ###"
+		+ "# .  ###"
+		+ "#   $$ #"
+		+ "## . $@#"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "##@.  ##"
+		+ "# $$* ##"
+		+ "#  #  ##"
+		+ "#  #  .#"
+		+ "#### # #"
+		+ "####   #"
+		+ "########"
+		,
+		  "########"
+		+ "#####  #"
+		+ "#####$.#"
+		+ "###  . #"
+		+ "###  #.#"
+		+ "# $  $ #"
+		+ "#   #@ #"
+		+ "########"
+		,
+		  "########"
+		+ "#  .####"
+		+ "# $.. ##"
+		+ "#  ##$##"
+		+ "##  #  #"
+		+ "##$   @#"
+		+ "##  ####"
+		+ "########"
+		,
+		  "########"
+		+ "###  ###"
+		+ "###  ###"
+		+ "### .. #"
+		+ "#  $#  #"
+		+ "#  .$$ #"
+		+ "#### @ #"
+		+ "########"
+		,
+		  "########"
+		+ "#   ####"
+		+ "# # *@##"
+		+ "#  *   #"
+		+ "###$   #"
+		+ "###   .#"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "### .  #"
+		+ "# $@#. #"
+		+ "#  $# ##"
+		+ "#  *  ##"
+		+ "##  # ##"
+		+ "###   ##"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "########"
+		+ "##  ####"
+		+ "#     ##"
+		+ "#  #$$@#"
+		+ "#  . *.#"
+		+ "########"
+		,
+		  "########"
+		+ "##@    #"
+		+ "#. #   #"
+		+ "# $$$.##"
+		+ "# .#  ##"
+		+ "#  #####"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "#      #"
+		+ "# # ##*#"
+		+ "# #@ $ #"
+		+ "#.$ .  #"
+		+ "#####  #"
+		+ "#####  #"
+		+ "########"
+		,
+		  "########"
+		+ "##@   ##"
+		+ "###$   #"
+		+ "### .  #"
+		+ "# $ #$##"
+		+ "# .  .##"
+		+ "####  ##"
+		+ "########"
+		,
+		  "########"
+		+ "#   ####"
+		+ "#  $  ##"
+		+ "##$$ .##"
+		+ "##@ . ##"
+		+ "### # ##"
+		+ "###  .##"
+		+ "########"
+		,
+		  "########"
+		+ "#   ####"
+		+ "# $$   #"
+		+ "# .#.  #"
+		+ "#  ## ##"
+		+ "#  ##$##"
+		+ "# @  .##"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "########"
+		+ "# .  ###"
+		+ "# .# ###"
+		+ "# @$$  #"
+		+ "# $.   #"
+		+ "########"
+		,
+		  "########"
+		+ "# @.#  #"
+		+ "# .$ . #"
+		+ "#  #$  #"
+		+ "#  $  ##"
+		+ "###  ###"
+		+ "###  ###"
+		+ "########"
+		,
+		  "########"
+		+ "#    . #"
+		+ "# $  $@#"
+		+ "#.$.####"
+		+ "#  #####"
+		+ "#  #####"
+		+ "#  #####"
+		+ "########"
+		,
+		  "########"
+		+ "# .  ###"
+		+ "#  #@###"
+		+ "#  $ ###"
+		+ "##$#  ##"
+		+ "#   # ##"
+		+ "#. *  ##"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "#### . #"
+		+ "# *@ . #"
+		+ "# $ #  #"
+		+ "# #  $ #"
+		+ "#   ####"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "########"
+		+ "###  ###"
+		+ "# .. $.#"
+		+ "#  $$ @#"
+		+ "####   #"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "#####@ #"
+		+ "##### .#"
+		+ "# $ $ $#"
+		+ "#   .  #"
+		+ "### .  #"
+		+ "########"
+		,
+		  "########"
+		+ "#   #  #"
+		+ "# #.$ $#"
+		+ "#   $  #"
+		+ "#####. #"
+		+ "###   @#"
+		+ "###   .#"
+		+ "########"
+		,
+		  "########"
+		+ "####@ ##"
+		+ "###  ..#"
+		+ "## $#$##"
+		+ "#   $. #"
+		+ "#  #   #"
+		+ "#    ###"
+		+ "########"
+		,
+		  "########"
+		+ "#   @###"
+		+ "# $$####"
+		+ "# $ .  #"
+		+ "## #.# #"
+		+ "#.   # #"
+		+ "#      #"
+		+ "########"
+		,
+		  "########"
+		+ "####  ##"
+		+ "#### $##"
+		+ "# @$.  #"
+		+ "# ##   #"
+		+ "#   ## #"
+		+ "#   * .#"
+		+ "########"
+		,
+		  "########"
+		+ "#### @ #"
+		+ "####   #"
+		+ "## $ $##"
+		+ "## $  ##"
+		+ "#.  # ##"
+		+ "#..   ##"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "####. @#"
+		+ "#  .$  #"
+		+ "# #  ###"
+		+ "# $ $ .#"
+		+ "####   #"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "#  .# @#"
+		+ "# # $  #"
+		+ "# $.#$ #"
+		+ "## .   #"
+		+ "##  ####"
+		+ "########"
+		,
+		  "########"
+		+ "########"
+		+ "##     #"
+		+ "##.## .#"
+		+ "##*  $@#"
+		+ "##  #$ #"
+		+ "##  #  #"
+		+ "########"
+		,
+		  "########"
+		+ "#. #####"
+		+ "# $#####"
+		+ "#  #####"
+		+ "# .$ @ #"
+		+ "# .$ # #"
+		+ "###    #"
+		+ "########"
+		,
+		  "########"
+		+ "#      #"
+		+ "# #$   #"
+		+ "# $ @#.#"
+		+ "##$#.  #"
+		+ "##    .#"
+		+ "########"
+		+ "########"
+		,
+		  "########"
+		+ "#  . ###"
+		+ "#    ###"
+		+ "# #$$. #"
+		+ "#.  ## #"
+		+ "#@$ ## #"
+		+ "###    #"
+		+ "########"
+		,
+		  "  .   . "
+		+ " ..  .. "
+		+ "        "
+		+ "      . "
+		+ "     .@ "
+		+ " .      "
+		+ "  ..    "
+		+ "    ... "
+	};
+
+	public int size()
+	{
+		return Data.length;
+	}
+
+	public SokobanBoard board(int level)
+	{
+		if (level < 0 || level >= Data.length)
+			return null;
+
+		return new SokobanBoard(Data[level], 8, 8);
+	}
+}
@@ -0,0 +1,295 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Lower bound on the pushes still needed, found by giving every block its
+ * own water so that the pushes add up to as few as possible. The pushes
+ * from each square to each water are worked out once, by pulling a block
+ * away from that water with the other blocks left out.
+ *
+ * The assignment is the Hungarian method, blocks as rows and water as
+ * columns, plus free columns when there are more blocks than water. After
+ * a single block moves only its row changes, so move() drops that row's
+ * assignment, fixes up its potential and finds one augmenting path, which
+ * is a lot less work than starting again.
+ */
+public final class SokobanMatching
+{
+	// Pushes when a block can't get to a given water at all.
+	private static final int	Infinite	= 1 << 20;
+
+	private int			cells;
+	private int			goals;
+	private int			size;
+
+	// Pushes from each square to each water, goal * cells + cell.
+	private int[]		distance;
+
+	// Rows and columns count from 1, as 0 is the Hungarian method's dummy.
+	private int[]		rowCell;
+	private int[]		cellRow;
+	private int[]		u;
+	private int[]		v;
+	private int[]		match;
+	private int[]		way;
+	private int[]		minimum;
+	private boolean[]	used;
+
+	private int			bound;
+
+	public SokobanMatching(SokobanBoard board)
+	{
+		long[]	walls		= board.walls();
+		long[]	water		= board.water();
+		long[]	blocks	= board.blocks();
+		int			stride	= board.stride();
+
+		cells = board.cells();
+
+		for (int cell = 0; cell < cells; ++cell)
+		{
+			if (SokobanBoard.has(water, cell))
+				goals++;
+
+			if (SokobanBoard.has(blocks, cell))
+				size++;
+		}
+
+		if (size < goals)
+			size = goals;
+
+		distance	= new int[goals * cells];
+		rowCell		= new int[size + 1];
+		cellRow		= new int[cells];
+		u					= new int[size + 1];
+		v					= new int[size + 1];
+		match			= new int[size + 1];
+		way				= new int[size + 1];
+		minimum		= new int[size + 1];
+		used			= new boolean[size + 1];
+
+		int queue[]	= new int[cells];
+		int step[]	= { -stride, stride, -1, 1 };
+
+		for (int cell = 0, goal = 0; cell < cells; ++cell)
+		{
+			if (SokobanBoard.has(water, cell))
+				pull(goal++ * cells, cell, walls, step, queue);
+		}
+	}
+
+	private void pull(int base, int goal, long[] walls, int[] step, int[] queue)
+	{
+		for (int cell = 0; cell < cells; ++cell)
+			distance[base + cell] = Infinite;
+
+		int head = 0;
+		int tail = 0;
+
+		distance[base + goal] = 0;
+		queue[tail++] = goal;
+
+		while (head < tail)
+		{
+			int cell = queue[head++];
+
+			for (int d = 0; d < 4; ++d)
+			{
+				int block	= cell - step[d];
+				int man		= block - step[d];
+
+				if (SokobanBoard.has(walls, block) || SokobanBoard.has(walls, man))
+					continue;
+
+				if (distance[base + block] != Infinite)
+					continue;
+
+				distance[base + block] = distance[base + cell] + 1;
+				queue[tail++] = block;
+			}
+		}
+	}
+
+	/*
+	 * The bound for the last position given to reset() or move(), or -1 if
+	 * some water can't be reached by any block that is left over for it.
+	 */
+	public int bound()
+	{
+		return bound;
+	}
+
+	/*
+	 * Assign from scratch for the blocks set in blocks, read from word offset
+	 * onwards. Returns bound().
+	 */
+	public int reset(long[] blocks, int offset)
+	{
+		int row = 0;
+
+		for (int cell = 0; cell < cells; ++cell)
+		{
+			if (SokobanBoard.has(blocks, offset, cell))
+			{
+				rowCell[++row] = cell;
+				cellRow[cell] = row;
+			}
+		}
+
+		for (int i = 0; i <= size; ++i)
+		{
+			u[i]			= 0;
+			v[i]			= 0;
+			match[i]	= 0;
+		}
+
+		for (int i = 1; i <= size; ++i)
+			augment(i);
+
+		return total();
+	}
+
+	/*
+	 * The block on from has been pushed to to. Returns bound().
+	 */
+	public int move(int from, int to)
+	{
+		int row = cellRow[from];
+
+		rowCell[row]	= to;
+		cellRow[to]		= row;
+
+		// A previous dead end may have left the potentials far out of range.
+		if (bound < 0)
+		{
+			for (int i = 0; i <= size; ++i)
+			{
+				u[i]			= 0;
+				v[i]			= 0;
+				match[i]	= 0;
+			}
+
+			for (int i = 1; i <= size; ++i)
+				augment(i);
+
+			return total();
+		}
+
+		for (int j = 1; j <= size; ++j)
+		{
+			if (match[j] == row)
+				match[j] = 0;
+		}
+
+		// Keep the row's reduced costs from going negative.
+		int least = Integer.MAX_VALUE;
+
+		for (int j = 1; j <= size; ++j)
+		{
+			int reduced = cost(row, j) - v[j];
+
+			if (reduced < least)
+				least = reduced;
+		}
+
+		u[row] = least;
+
+		augment(row);
+
+		return total();
+	}
+
+	private int cost(int row, int column)
+	{
+		if (column > goals)
+			return 0;
+
+		return distance[(column - 1) * cells + rowCell[row]];
+	}
+
+	/*
+	 * Find a shortest augmenting path from the given unassigned row,
+	 * adjusting the potentials on the way.
+	 */
+	private void augment(int row)
+	{
+		match[0] = row;
+
+		int column = 0;
+
+		for (int j = 0; j <= size; ++j)
+		{
+			minimum[j]	= Integer.MAX_VALUE;
+			used[j]			= false;
+		}
+
+		do
+		{
+			used[column] = true;
+
+			int i			= match[column];
+			int delta	= Integer.MAX_VALUE;
+			int next	= 0;
+
+			for (int j = 1; j <= size; ++j)
+			{
+				if (used[j])
+					continue;
+
+				int reduced = cost(i, j) - u[i] - v[j];
+
+				if (reduced < minimum[j])
+				{
+					minimum[j]	= reduced;
+					way[j]			= column;
+				}
+
+				if (minimum[j] < delta)
+				{
+					delta	= minimum[j];
+					next	= j;
+				}
+			}
+
+			for (int j = 0; j <= size; ++j)
+			{
+				if (used[j])
+				{
+					u[match[j]] += delta;
+					v[j] -= delta;
+				}
+				else
+				{
+					minimum[j] -= delta;
+				}
+			}
+
+			column = next;
+		}
+		while (0 != match[column]);
+
+		do
+		{
+			int previous = way[column];
+
+			match[column] = match[previous];
+			column = previous;
+		}
+		while (0 != column);
+	}
+
+	private int total()
+	{
+		int sum = 0;
+
+		for (int j = 1; j <= size; ++j)
+			sum += cost(match[j], j);
+
+		bound = sum < Infinite ? sum : -1;
+
+		return bound;
+	}
+}
@@ -0,0 +1,194 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Counts and times what the game is doing, for seeing how it behaves on a
+ * real phone. Only made if the JAD has "Sokoban-Metrics: true", and
+ * everything that counts checks for null first, so when it is off the
+ * cost is one comparison.
+ *
+ * Times go into histograms with fixed buckets, each holding the times
+ * under its bound in ms, with the last holding everything longer, so
+ * recording one is a few comparisons and an increment.
+ *
+ * snapshot() is a copy that doesn't change as play goes on.
+ */
+public final class SokobanMetrics
+{
+	// Counters.
+	public static final int		Moves				= 0;
+	public static final int		Pushes			= 1;
+	public static final int		Rejected		= 2;
+	public static final int		Undos				= 3;
+	public static final int		Redos				= 4;
+	public static final int		Levels			= 5;
+	public static final int		Repaints		= 6;
+	public static final int		Paints			= 7;
+	public static final int		Cells				= 8;
+	public static final int		Counters		= 9;
+
+	// Histograms.
+	public static final int		PaintTime		= 0;
+	public static final int		LevelTime		= 1;
+	public static final int		Histograms	= 2;
+
+	private static final String	CounterNames[] =
+	{
+		"Moves",
+		"Pushes",
+		"Rejected",
+		"Undos",
+		"Redos",
+		"Levels",
+		"Repaints",
+		"Paints",
+		"Cells painted"
+	};
+
+	private static final String	HistogramNames[] =
+	{
+		"Paint ms",
+		"Level ms"
+	};
+
+	// Upper bound of each bucket but the last.
+	private static final int		Bounds[] = { 1, 2, 4, 8, 16, 32, 64, 128 };
+
+	private long		started;
+	private long		millis;
+	private int[]		counts			= new int[Counters];
+	private int[][]	histograms	= new int[Histograms][Bounds.length + 1];
+	private int			depth;
+	private int			maxDepth;
+
+	public SokobanMetrics()
+	{
+		started = System.currentTimeMillis();
+	}
+
+	public void count(int counter)
+	{
+		counts[counter]++;
+	}
+
+	public void count(int counter, int n)
+	{
+		counts[counter] += n;
+	}
+
+	public void time(int histogram, long millis)
+	{
+		int bucket = 0;
+
+		while (bucket < Bounds.length && millis >= Bounds[bucket])
+			bucket++;
+
+		histograms[histogram][bucket]++;
+	}
+
+	// Moves that can be undone.
+	public void depth(int depth)
+	{
+		this.depth = depth;
+
+		if (depth > maxDepth)
+			maxDepth = depth;
+	}
+
+	/*
+	 * A copy of everything so far.
+	 */
+	public SokobanMetrics snapshot()
+	{
+		SokobanMetrics copy = new SokobanMetrics();
+
+		copy.started	= started;
+		copy.millis		= System.currentTimeMillis() - started;
+		copy.depth		= depth;
+		copy.maxDepth	= maxDepth;
+
+		System.arraycopy(counts, 0, copy.counts, 0, Counters);
+
+		for (int i = 0; i < Histograms; ++i)
+			System.arraycopy(histograms[i], 0, copy.histograms[i], 0, histograms[i].length);
+
+		return copy;
+	}
+
+	// How long there had been counting for, when this snapshot was taken.
+	public long millis()
+	{
+		return millis;
+	}
+
+	public int get(int counter)
+	{
+		return counts[counter];
+	}
+
+	public int buckets()
+	{
+		return Bounds.length + 1;
+	}
+
+	public int histogram(int histogram, int bucket)
+	{
+		return histograms[histogram][bucket];
+	}
+
+	public int depth()
+	{
+		return depth;
+	}
+
+	public int maxDepth()
+	{
+		return maxDepth;
+	}
+
+	public String toString()
+	{
+		StringBuffer s = new StringBuffer();
+
+		for (int i = 0; i < Counters; ++i)
+			s.append(CounterNames[i]).append(": ").append(counts[i]).append('\n');
+
+		if (millis > 0)
+		{
+			long tenths = counts[Moves] * 10000L / millis;
+
+			s.append("Moves/s: ").append(tenths / 10).append('.');
+			s.append(tenths % 10).append('\n');
+		}
+
+		s.append("Undo depth: ").append(depth);
+		s.append(" (most ").append(maxDepth).append(")\n");
+
+		for (int i = 0; i < Histograms; ++i)
+		{
+			s.append(HistogramNames[i]).append(':');
+
+			for (int bucket = 0; bucket <= Bounds.length; ++bucket)
+			{
+				if (0 == histograms[i][bucket])
+					continue;
+
+				s.append(' ');
+
+				if (bucket < Bounds.length)
+					s.append('<').append(Bounds[bucket]);
+				else
+					s.append(Bounds[Bounds.length - 1]).append('+');
+
+				s.append('=').append(histograms[i][bucket]);
+			}
+
+			s.append('\n');
+		}
+
+		return s.toString();
+	}
+}
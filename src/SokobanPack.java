@@ -0,0 +1,423 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+import java.io.*;
+
+/*
+ * Levels read from a resource in the usual XSB / .sok text format.
+ *
+ * A level is a run of lines made only of the level characters with at
+ * least one wall on each. Anything else (titles, authors, comments, blank
+ * lines) just separates levels. Floor may also be written as '-' or '_',
+ * and a count before a character repeats it, so "4#" is "####". Levels can
+ * be any size, and floor outside the walls is turned into wall.
+ *
+ * Nothing is read until a level is asked for, and then only as far as that
+ * level, of which only that level is kept. So that a big pack doesn't have
+ * to be read from the top every time, the offset of every Stride'th level
+ * is noted on the way past and the next read skips straight to the nearest
+ * one.
+ */
+public final class SokobanPack implements SokobanSource
+{
+	private static final int	Stride	= 32;
+
+	private String	resource;
+	private int			size		= -1;
+
+	// Offsets of levels 0, Stride, 2 * Stride, ...
+	private int[]		marks		= new int[16];
+	private int			marked;
+
+	// The stream being read and where in it.
+	private InputStream	in;
+	private byte[]	buffer	= new byte[512];
+	private int			head;
+	private int			tail;
+	private int			offset;
+
+	// The last line read, and where it started.
+	private char[]	line		= new char[64];
+	private int			length;
+	private int			start;
+
+	public SokobanPack(String resource)
+	{
+		this.resource = resource;
+	}
+
+	/*
+	 * Reads through the whole pack the first time.
+	 */
+	public synchronized int size()
+	{
+		if (size < 0 && open(0))
+		{
+			seek(0, Integer.MAX_VALUE);
+			close();
+		}
+
+		return Math.max(size, 0);
+	}
+
+	public synchronized SokobanBoard board(int level)
+	{
+		if (level < 0)
+			return null;
+
+		int mark = Math.min(level / Stride, marked - 1);
+
+		if (!open(mark < 0 ? 0 : marks[mark]))
+			return null;
+
+		SokobanBoard board = null;
+
+		if (seek(mark < 0 ? 0 : mark * Stride, level))
+			board = parse();
+
+		close();
+
+		return board;
+	}
+
+	/*
+	 * Read on to the first line of the given level, starting from the level
+	 * numbered index. Returns false if the pack ends first, and then knows
+	 * how many levels there are.
+	 */
+	private boolean seek(int index, int level)
+	{
+		for (;;)
+		{
+			if (!next())
+			{
+				size = index;
+				return false;
+			}
+
+			note(index, start);
+
+			if (index++ == level)
+				return true;
+
+			while (read() && board())
+				;
+		}
+	}
+
+	// Read up to the first line of the next level.
+	private boolean next()
+	{
+		if (board())
+			return true;
+
+		while (read())
+		{
+			if (board())
+				return true;
+		}
+
+		return false;
+	}
+
+	private void note(int index, int at)
+	{
+		if (0 != index % Stride || index / Stride != marked)
+			return;
+
+		if (marked == marks.length)
+		{
+			int[] more = new int[marked * 2];
+
+			System.arraycopy(marks, 0, more, 0, marked);
+			marks = more;
+		}
+
+		marks[marked++] = at;
+	}
+
+	/*
+	 * Turn the lines of the level starting at the current line into a board,
+	 * or null if it hasn't got exactly one man.
+	 */
+	private SokobanBoard parse()
+	{
+		StringBuffer rows = new StringBuffer();
+
+		int width		= 0;
+		int height	= 0;
+		int men			= 0;
+
+		do
+		{
+			int from = rows.length();
+
+			for (int i = 0; i < length; ++i)
+			{
+				char c = line[i];
+				int count = 0;
+
+				while (c >= '0' && c <= '9' && i + 1 < length)
+				{
+					count = count * 10 + c - '0';
+					c = line[++i];
+				}
+
+				if ('-' == c || '_' == c)
+					c = SokobanBoard.Air;
+
+				if (SokobanBoard.Man == c || SokobanBoard.ManOnWater == c)
+					men += count > 0 ? count : 1;
+
+				for (int n = Math.max(count, 1); n > 0; --n)
+					rows.append(c);
+			}
+
+			width = Math.max(width, rows.length() - from);
+			rows.append('\n');
+			height++;
+		}
+		while (read() && board());
+
+		if (1 != men)
+			return null;
+
+		char cells[] = new char[width * height];
+
+		for (int i = 0, row = 0, col = 0; i < rows.length(); ++i)
+		{
+			char c = rows.charAt(i);
+
+			if ('\n' == c)
+			{
+				for (; col < width; ++col)
+					cells[row * width + col] = SokobanBoard.Air;
+
+				row++;
+				col = 0;
+			}
+			else
+			{
+				cells[row * width + col++] = c;
+			}
+		}
+
+		outside(cells, width, height);
+
+		return new SokobanBoard(new String(cells), width, height);
+	}
+
+	/*
+	 * Fill in the floor that can be got to from the edge without crossing a
+	 * wall, which is outside the level.
+	 */
+	private static void outside(char[] cells, int width, int height)
+	{
+		int queue[]	= new int[cells.length];
+		int tail		= 0;
+
+		for (int i = 0; i < cells.length; ++i)
+		{
+			int x = i % width;
+			int y = i / width;
+
+			if (x > 0 && y > 0 && x < width - 1 && y < height - 1)
+				continue;
+
+			if (SokobanBoard.Air == cells[i])
+			{
+				cells[i] = SokobanBoard.Wall;
+				queue[tail++] = i;
+			}
+		}
+
+		for (int head = 0; head < tail; ++head)
+		{
+			int i = queue[head];
+			int x = i % width;
+
+			if (x > 0)
+				tail = outside(cells, i - 1, queue, tail);
+
+			if (x < width - 1)
+				tail = outside(cells, i + 1, queue, tail);
+
+			if (i >= width)
+				tail = outside(cells, i - width, queue, tail);
+
+			if (i + width < cells.length)
+				tail = outside(cells, i + width, queue, tail);
+		}
+	}
+
+	private static int outside(char[] cells, int i, int[] queue, int tail)
+	{
+		if (SokobanBoard.Air != cells[i])
+			return tail;
+
+		cells[i] = SokobanBoard.Wall;
+		queue[tail++] = i;
+
+		return tail;
+	}
+
+	/*
+	 * True if the current line is part of a level.
+	 */
+	private boolean board()
+	{
+		boolean wall = false;
+
+		for (int i = 0; i < length; ++i)
+		{
+			switch (line[i])
+			{
+				case SokobanBoard.Wall:
+					wall = true;
+					break;
+				case SokobanBoard.Air:
+				case SokobanBoard.Water:
+				case SokobanBoard.Block:
+				case SokobanBoard.BlockOnWater:
+				case SokobanBoard.Man:
+				case SokobanBoard.ManOnWater:
+				case '-':
+				case '_':
+					break;
+				default:
+					if (line[i] < '0' || line[i] > '9')
+						return false;
+			}
+		}
+
+		return wall;
+	}
+
+	/*
+	 * Read the next line into line[], without its line ending or trailing
+	 * spaces. Returns false, with length -1, at the end of the stream.
+	 */
+	private boolean read()
+	{
+		start		= offset;
+		length	= 0;
+
+		int c = -1;
+
+		for (;;)
+		{
+			c = get();
+
+			if (c < 0 || '\n' == c)
+				break;
+
+			if ('\r' == c || '\t' == c)
+				continue;
+
+			if (length == line.length)
+			{
+				char[] more = new char[length * 2];
+
+				System.arraycopy(line, 0, more, 0, length);
+				line = more;
+			}
+
+			line[length++] = (char)c;
+		}
+
+		while (length > 0 && ' ' == line[length - 1])
+			length--;
+
+		if (c < 0 && 0 == length && offset == start)
+		{
+			length = -1;
+			return false;
+		}
+
+		return true;
+	}
+
+	private int get()
+	{
+		if (head == tail)
+		{
+			try
+			{
+				tail = in.read(buffer, 0, buffer.length);
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+				tail = -1;
+			}
+
+			head = 0;
+
+			if (tail <= 0)
+			{
+				tail = 0;
+				return -1;
+			}
+		}
+
+		offset++;
+
+		return buffer[head++] & 0xff;
+	}
+
+	private boolean open(int at)
+	{
+		in = getClass().getResourceAsStream(resource);
+
+		if (null == in)
+			return false;
+
+		head		= 0;
+		tail		= 0;
+		offset	= 0;
+		length	= 0;
+
+		try
+		{
+			while (offset < at)
+			{
+				long skipped = in.skip(at - offset);
+
+				if (skipped <= 0)
+				{
+					if (in.read() < 0)
+						break;
+
+					skipped = 1;
+				}
+
+				offset += (int)skipped;
+			}
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			close();
+
+			return false;
+		}
+
+		return true;
+	}
+
+	private void close()
+	{
+		try
+		{
+			in.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+
+		in = null;
+	}
+}
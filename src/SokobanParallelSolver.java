@@ -0,0 +1,457 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * A* over one level on several threads.
+ *
+ * Every position belongs to one worker, chosen by its hash, and only that
+ * worker keeps it in its table and open list. A worker that generates a
+ * position it does not own posts it to the owner through a mailbox: a
+ * ring buffer with one writer and one reader, so posting and collecting
+ * need no locks.
+ *
+ * A solution found by any worker only sets a bound. Work stops once every
+ * worker has nothing left under the bound and every message sent has been
+ * received, which is checked by adding up the counts twice in a row.
+ *
+ * A listener is told how the workers are getting on, added up, by the
+ * thread that called solve(), which has nothing else to do while they
+ * search.
+ */
+public final class SokobanParallelSolver
+{
+	// Messages each mailbox can hold, a power of two.
+	private static final int	Messages	= 256;
+
+	private SokobanSolver[]	solvers;
+	private Worker[]				workers;
+	private Mailbox[][]			mail;
+
+	private volatile int			bound;
+	private volatile boolean	done;
+	private int								best;
+
+	private int			status;
+	private int			nodes;
+	private long		millis;
+
+	private SokobanProgressListener	listener;
+	private long		period;
+	private long		began;
+	private int			running;
+
+	public SokobanParallelSolver(SokobanBoard board, int threads)
+	{
+		solvers = new SokobanSolver[threads];
+		workers = new Worker[threads];
+		mail		= new Mailbox[threads][threads];
+
+		for (int i = 0; i < threads; ++i)
+			solvers[i] = new SokobanSolver(board, this, i);
+
+		for (int i = 0; i < threads; ++i)
+		{
+			solvers[i].setOwners(solvers);
+			workers[i] = new Worker(i);
+
+			for (int j = 0; j < threads; ++j)
+				mail[i][j] = new Mailbox(solvers[i].messageSize());
+		}
+	}
+
+	public void setMetric(int metric)
+	{
+		for (int i = 0; i < solvers.length; ++i)
+			solvers[i].setMetric(metric);
+	}
+
+	/*
+	 * The memory limit is shared out between the workers.
+	 */
+	public void setLimits(long millis, int memory)
+	{
+		for (int i = 0; i < solvers.length; ++i)
+			solvers[i].setLimits(millis, memory / solvers.length);
+	}
+
+	/*
+	 * Tell listener when solve() starts and finishes, and every period
+	 * milliseconds in between.
+	 */
+	public void setListener(SokobanProgressListener listener, long period)
+	{
+		this.listener	= listener;
+		this.period		= period;
+	}
+
+	public int status()
+	{
+		return status;
+	}
+
+	public int nodes()
+	{
+		return nodes;
+	}
+
+	public long millis()
+	{
+		return millis;
+	}
+
+	/*
+	 * How the search is going, added up over the workers.
+	 */
+	public SokobanProgress progress()
+	{
+		SokobanProgress progress = solvers[0].progress();
+
+		for (int i = 1; i < solvers.length; ++i)
+			progress.add(solvers[i].progress());
+
+		progress.status = status;
+		progress.millis	= running > 0 ? System.currentTimeMillis() - began : millis;
+
+		return progress;
+	}
+
+	public String solve()
+	{
+		long begin		= System.currentTimeMillis();
+		long deadline	= solvers[0].deadline(begin);
+
+		began		= begin;
+		millis	= 0;
+
+		bound		= Integer.MAX_VALUE;
+		best		= -1;
+		done		= false;
+		status	= SokobanSolver.Unsolvable;
+		nodes		= 0;
+
+		String solution = null;
+
+		boolean possible = true;
+
+		for (int i = 0; i < solvers.length; ++i)
+		{
+			workers[i].reset();
+
+			for (int j = 0; j < solvers.length; ++j)
+				mail[i][j].reset();
+
+			if (!solvers[i].begin(deadline))
+				possible = false;
+		}
+
+		if (listener != null)
+			listener.started(progress());
+
+		if (possible)
+		{
+			Thread threads[] = new Thread[workers.length];
+
+			running = workers.length;
+
+			for (int i = 0; i < workers.length; ++i)
+			{
+				threads[i] = new Thread(workers[i]);
+				threads[i].start();
+			}
+
+			if (listener != null)
+				watch();
+
+			for (int i = 0; i < workers.length; ++i)
+			{
+				try
+				{
+					threads[i].join();
+				}
+				catch (InterruptedException e)
+				{
+					e.printStackTrace();
+				}
+			}
+
+			if (SokobanSolver.Unsolvable == status && best >= 0)
+			{
+				status		= SokobanSolver.Solved;
+				solution	= solvers[0].path(best);
+			}
+		}
+
+		for (int i = 0; i < solvers.length; ++i)
+			nodes += solvers[i].nodes();
+
+		millis = System.currentTimeMillis() - begin;
+
+		if (listener != null)
+			listener.finished(progress());
+
+		for (int i = 0; i < solvers.length; ++i)
+			solvers[i].release();
+
+		return solution;
+	}
+
+	// Report every period until the workers have all stopped.
+	private void watch()
+	{
+		for (long report = began + period; running(report); report += period)
+			listener.progress(progress());
+	}
+
+	/*
+	 * Wait until the time given or the workers have all stopped. Returns
+	 * false if they have.
+	 */
+	private synchronized boolean running(long until)
+	{
+		while (running > 0)
+		{
+			long left = until - System.currentTimeMillis();
+
+			if (left <= 0)
+				return true;
+
+			try
+			{
+				wait(left);
+			}
+			catch (InterruptedException e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		return false;
+	}
+
+	private synchronized void stopped()
+	{
+		running--;
+		notifyAll();
+	}
+
+	int owner(long key)
+	{
+		return (int)((key >>> 40) % solvers.length);
+	}
+
+	int bound()
+	{
+		return bound;
+	}
+
+	synchronized void solution(int ref, int cost)
+	{
+		if (cost < bound)
+		{
+			bound	= cost;
+			best	= ref;
+		}
+	}
+
+	private synchronized void stop(int why)
+	{
+		if (SokobanSolver.Unsolvable == status)
+			status = why;
+
+		done = true;
+	}
+
+	/*
+	 * Post the node a worker has just built to the worker that owns it.
+	 */
+	void send(int from, long key, int node)
+	{
+		Worker	worker	= workers[from];
+		Mailbox	box			= mail[from][owner(key)];
+
+		solvers[from].pack(node, key, worker.message);
+
+		while (!box.put(worker.message))
+		{
+			// The owner is behind, so take in our own post while waiting.
+			worker.receive();
+
+			if (done)
+				return;
+
+			Thread.yield();
+		}
+
+		worker.sent++;
+	}
+
+	/*
+	 * True if every worker is idle and all messages have been received, and
+	 * that was still so on a second look.
+	 */
+	private boolean quiet()
+	{
+		long sent			= -1;
+		long received	= -1;
+
+		for (int wave = 0; wave < 2; ++wave)
+		{
+			long s = 0;
+			long r = 0;
+
+			for (int i = 0; i < workers.length; ++i)
+			{
+				if (!workers[i].idle)
+					return false;
+
+				s += workers[i].sent;
+				r += workers[i].received;
+			}
+
+			if (s != r || (wave > 0 && (s != sent || r != received)))
+				return false;
+
+			sent			= s;
+			received	= r;
+		}
+
+		return true;
+	}
+
+	private final class Worker implements Runnable
+	{
+		private int						index;
+		private SokobanSolver	solver;
+		private long[]				message;
+
+		volatile boolean			idle;
+		volatile long					sent;
+		volatile long					received;
+
+		Worker(int index)
+		{
+			this.index	= index;
+			solver			= solvers[index];
+			message			= new long[solver.messageSize()];
+		}
+
+		void reset()
+		{
+			idle			= false;
+			sent			= 0;
+			received	= 0;
+		}
+
+		public void run()
+		{
+			while (!done)
+			{
+				boolean busy = receive();
+
+				if (solver.expandNext(bound))
+					busy = true;
+
+				if (busy)
+					continue;
+
+				if (SokobanSolver.Unsolvable != solver.status())
+				{
+					stop(solver.status());
+					break;
+				}
+
+				idle = true;
+
+				if (0 == index && quiet())
+					done = true;
+				else
+					Thread.yield();
+			}
+
+			stopped();
+		}
+
+		/*
+		 * Take in everything posted to this worker. Returns true if there
+		 * was anything.
+		 */
+		boolean receive()
+		{
+			boolean any = false;
+
+			for (int from = 0; from < workers.length; ++from)
+			{
+				Mailbox box = mail[from][index];
+
+				if (box.empty())
+					continue;
+
+				idle	= false;
+				any		= true;
+
+				while (!box.empty())
+				{
+					solver.unpack(box.ring, box.offset());
+					box.take();
+					received++;
+				}
+			}
+
+			return any;
+		}
+	}
+
+	private static final class Mailbox
+	{
+		long[]				ring;
+		private int		size;
+
+		// Only the sender moves tail and only the receiver moves head.
+		private volatile int	head;
+		private volatile int	tail;
+
+		Mailbox(int size)
+		{
+			this.size	= size;
+			ring			= new long[Messages * size];
+		}
+
+		void reset()
+		{
+			head = 0;
+			tail = 0;
+		}
+
+		boolean empty()
+		{
+			return head == tail;
+		}
+
+		boolean put(long[] message)
+		{
+			int t = tail;
+
+			if (t - head == Messages)
+				return false;
+
+			System.arraycopy(message, 0, ring, (t & (Messages - 1)) * size, size);
+			tail = t + 1;
+
+			return true;
+		}
+
+		// Where the oldest message starts.
+		int offset()
+		{
+			return (head & (Messages - 1)) * size;
+		}
+
+		void take()
+		{
+			head++;
+		}
+	}
+}
@@ -0,0 +1,304 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Finds how to get one block to a given square in the fewest pushes, with
+ * the walks in between, leaving the other blocks where they are.
+ *
+ * A position is the block's square and the side the man pushes it from,
+ * so there are at most four per square and a breadth first search over
+ * them finds the fewest pushes. Blocks are never pushed onto dead squares,
+ * other than the target itself.
+ *
+ * After a push the man is next to the block, and can get round to another
+ * side of it unless the block's square cuts the two apart. As the other
+ * blocks stay put, one depth first search over the free squares at the
+ * start finds every square that cuts the floor in two (Tarjan's low link)
+ * and which side of it each neighbour is on, so no position needs the man
+ * flooded again. Only the first push, with the man anywhere, and the walks
+ * in the plan found are flooded.
+ *
+ * Like SokobanReach, all the space is allocated once per board and squares
+ * are marked with a generation number rather than cleared between plans.
+ */
+public final class SokobanPlanner
+{
+	private SokobanBoard	board;
+	private SokobanReach	reach;
+	private int						cells;
+	private long[]				walls;
+	private long[]				water;
+	private long[]				dead;
+	private int[]					step;
+
+	// The other blocks, with the one being pushed set only while flooding.
+	private long[]				blocks;
+
+	// Per position, block * 4 + direction of the push to make from it.
+	private int[]					visited;
+	private int						generation;
+	private int[]					parent;
+	private int[]					queue;
+
+	// The depth first search: order found, lowest order reachable through
+	// the square's subtree, order after its subtree and parent, per square.
+	private int[]					seen;
+	private int[]					order;
+	private int[]					low;
+	private int[]					end;
+	private int[]					tree;
+	private byte[]				next;
+	private int[]					stack;
+
+	public SokobanPlanner(SokobanBoard board)
+	{
+		int stride = board.stride();
+
+		this.board	= board;
+		reach				= new SokobanReach(board);
+		cells				= board.cells();
+		walls				= board.walls();
+		water				= board.water();
+		dead				= board.dead();
+		step				= new int[] { -stride, stride, -1, 1 };
+		blocks			= new long[walls.length];
+
+		visited	= new int[4 * cells];
+		parent	= new int[4 * cells];
+		queue		= new int[4 * cells];
+
+		seen	= new int[cells];
+		order	= new int[cells];
+		low		= new int[cells];
+		end		= new int[cells];
+		tree	= new int[cells];
+		next	= new byte[cells];
+		stack	= new int[cells];
+	}
+
+	/*
+	 * Moves in LURD letters that get the block on square from to square to,
+	 * or null if it can't be done without moving another block. If a push
+	 * on the way covers the last open water the moves end there, as the
+	 * level is solved.
+	 */
+	public String plan(int from, int to)
+	{
+		long[] current = board.blocks();
+
+		if (!SokobanBoard.has(current, from) || SokobanBoard.has(walls, to))
+			return null;
+
+		if (from == to)
+			return "";
+
+		System.arraycopy(current, 0, blocks, 0, blocks.length);
+		SokobanBoard.clear(blocks, from);
+
+		if (++generation == 0)
+		{
+			for (int i = 0; i < visited.length; ++i)
+				visited[i] = 0;
+
+			generation = 1;
+		}
+
+		search(board.man());
+
+		SokobanBoard.set(blocks, from);
+		reach.fill(blocks, 0, board.man());
+		SokobanBoard.clear(blocks, from);
+
+		int head	= 0;
+		int tail	= 0;
+
+		for (int d = 0; d < 4; ++d)
+		{
+			if (reach.reached(from - step[d]))
+				tail = push(from, d, to, -1, tail);
+		}
+
+		while (head < tail)
+		{
+			int position	= queue[head++];
+			int man				= position >> 2;
+			int block			= man + step[position & 3];
+
+			if (block == to)
+				return moves(position);
+
+			int side = side(block, man);
+
+			for (int d = 0; d < 4; ++d)
+			{
+				int cell = block - step[d];
+
+				if (free(cell) && side(block, cell) == side)
+					tail = push(block, d, to, position, tail);
+			}
+		}
+
+		return null;
+	}
+
+	/*
+	 * Queue pushing the block on square block in direction d, if it can go
+	 * there and hasn't been before. Returns the new end of the queue.
+	 */
+	private int push(int block, int d, int to, int from, int tail)
+	{
+		int beyond		= block + step[d];
+		int position	= (block << 2) | d;
+
+		if (visited[position] == generation || !free(beyond))
+			return tail;
+
+		if (beyond != to && SokobanBoard.has(dead, beyond))
+			return tail;
+
+		visited[position]	= generation;
+		parent[position]	= from;
+		queue[tail++]			= position;
+
+		return tail;
+	}
+
+	private boolean free(int cell)
+	{
+		return !SokobanBoard.has(walls, cell) && !SokobanBoard.has(blocks, cell);
+	}
+
+	/*
+	 * Number the free squares depth first from root, without recursion, as
+	 * the stack on a phone is small.
+	 */
+	private void search(int root)
+	{
+		int count	= 0;
+		int top		= 0;
+
+		seen[root]	= generation;
+		order[root]	= low[root] = count++;
+		tree[root]	= -1;
+		next[root]	= 0;
+
+		stack[top++] = root;
+
+		while (top > 0)
+		{
+			int cell = stack[top - 1];
+
+			if (next[cell] < 4)
+			{
+				int child = cell + step[next[cell]++];
+
+				if (!free(child))
+					continue;
+
+				if (seen[child] != generation)
+				{
+					seen[child]		= generation;
+					order[child]	= low[child] = count++;
+					tree[child]		= cell;
+					next[child]		= 0;
+
+					stack[top++] = child;
+				}
+				else if (child != tree[cell] && order[child] < low[cell])
+				{
+					low[cell] = order[child];
+				}
+
+				continue;
+			}
+
+			end[cell] = count;
+			top--;
+
+			int up = tree[cell];
+
+			if (up >= 0 && low[cell] < low[up])
+				low[up] = low[cell];
+		}
+	}
+
+	/*
+	 * Which part of the floor the free square next to block is in, with the
+	 * block on its square: the child of block in the search that leads to
+	 * it, if nothing there gets round the block, otherwise -1.
+	 */
+	private int side(int block, int neighbour)
+	{
+		if (order[neighbour] < order[block] || order[neighbour] >= end[block])
+			return -1;
+
+		for (int d = 0; d < 4; ++d)
+		{
+			int child = block + step[d];
+
+			if (seen[child] != generation || tree[child] != block)
+				continue;
+
+			if (order[neighbour] >= order[child] && order[neighbour] < end[child])
+				return low[child] >= order[block] ? child : -1;
+		}
+
+		return -1;
+	}
+
+	// Walk and push from the man's square through every push up to last.
+	private String moves(int last)
+	{
+		int count = 0;
+
+		for (int position = last; position >= 0; position = parent[position])
+			queue[count++] = position;
+
+		StringBuffer	s			= new StringBuffer();
+		int						man		= board.man();
+		int						open	= board.openWater();
+
+		for (int i = count - 1; i >= 0 && open > 0; --i)
+		{
+			int block	= queue[i] >> 2;
+			int d			= queue[i] & 3;
+
+			SokobanBoard.set(blocks, block);
+			reach.fill(blocks, 0, man);
+			SokobanBoard.clear(blocks, block);
+
+			walk(s, block - step[d]);
+
+			s.append(SokobanBoard.letter(d, true));
+			man = block;
+
+			if (SokobanBoard.has(water, block))
+				open++;
+
+			if (SokobanBoard.has(water, block + step[d]))
+				open--;
+		}
+
+		return s.toString();
+	}
+
+	// Append the walk to cell found by the last flood.
+	private void walk(StringBuffer s, int cell)
+	{
+		int start	= s.length();
+		int end		= start + reach.distance(cell);
+
+		s.setLength(end);
+
+		for (int i = end - 1; i >= start; --i)
+		{
+			int a = reach.arrival(cell);
+
+			s.setCharAt(i, SokobanBoard.letter(a, false));
+			cell -= step[a];
+		}
+	}
+}
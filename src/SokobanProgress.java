@@ -0,0 +1,152 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * How far a search has got, as taken by SokobanSolver.progress(). It is
+ * a copy, so it doesn't change as the search goes on. If it was taken
+ * from another thread than the one searching, the numbers may be a node
+ * or two apart from each other.
+ */
+public final class SokobanProgress
+{
+	// Reasons a position was thrown away.
+	public static final int		Unmatched		= 0;
+	public static final int		Dead				= 1;
+	public static final int		Frozen			= 2;
+	public static final int		Corral			= 3;
+	public static final int		Duplicate		= 4;
+	public static final int		Stale				= 5;
+	public static final int		Bound				= 6;
+	public static final int		Prunes			= 7;
+
+	private static final String	PruneNames[] =
+	{
+		"unmatched",
+		"dead",
+		"frozen",
+		"corral",
+		"duplicate",
+		"stale",
+		"over bound"
+	};
+
+	int			status;
+	long		millis;
+	int			nodes;
+	int			generated;
+	int			open;
+	int			tableSize;
+	int			tableCapacity;
+	long		lookups;
+	long		hits;
+	int			bound;
+	int[]		prunes		= new int[Prunes];
+
+	// One of the SokobanSolver statuses, only meaningful once finished.
+	public int status()
+	{
+		return status;
+	}
+
+	public long millis()
+	{
+		return millis;
+	}
+
+	// Positions expanded.
+	public int nodes()
+	{
+		return nodes;
+	}
+
+	// Positions kept, whether expanded yet or not.
+	public int generated()
+	{
+		return generated;
+	}
+
+	// Positions waiting on the open list.
+	public int open()
+	{
+		return open;
+	}
+
+	public int tableSize()
+	{
+		return tableSize;
+	}
+
+	public int tableCapacity()
+	{
+		return tableCapacity;
+	}
+
+	public long lookups()
+	{
+		return lookups;
+	}
+
+	public long hits()
+	{
+		return hits;
+	}
+
+	// Hits per thousand lookups of the table.
+	public int hitRate()
+	{
+		return 0 == lookups ? 0 : (int)(hits * 1000 / lookups);
+	}
+
+	/*
+	 * No solution can cost less than this: the highest cost plus estimate
+	 * of any position expanded so far.
+	 */
+	public int bound()
+	{
+		return bound;
+	}
+
+	public int prunes(int reason)
+	{
+		return prunes[reason];
+	}
+
+	/*
+	 * Add in another worker's progress on the same search.
+	 */
+	void add(SokobanProgress other)
+	{
+		nodes					+= other.nodes;
+		generated			+= other.generated;
+		open					+= other.open;
+		tableSize			+= other.tableSize;
+		tableCapacity	+= other.tableCapacity;
+		lookups				+= other.lookups;
+		hits					+= other.hits;
+		bound					= Math.max(bound, other.bound);
+
+		for (int i = 0; i < Prunes; ++i)
+			prunes[i] += other.prunes[i];
+	}
+
+	public String toString()
+	{
+		StringBuffer s = new StringBuffer();
+
+		s.append(nodes).append(" nodes, ");
+		s.append(open).append(" open, ");
+		s.append("table ").append(tableSize).append('/').append(tableCapacity);
+		s.append(' ').append(hitRate() / 10).append("% hits, ");
+		s.append("bound ").append(bound).append(", pruned");
+
+		for (int i = 0; i < Prunes; ++i)
+			s.append(' ').append(prunes[i]).append(' ').append(PruneNames[i]);
+
+		s.append(", ").append(millis).append(" ms");
+
+		return s.toString();
+	}
+}
@@ -0,0 +1,28 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Told how a SokobanSolver is getting on, on the thread doing the search,
+ * so it should be quick about it. A SokobanParallelSolver tells it on the
+ * thread that called solve() instead.
+ */
+public interface SokobanProgressListener
+{
+	/*
+	 * A search is about to start.
+	 */
+	public void started(SokobanProgress progress);
+
+	/*
+	 * The search has been going for another period, see setListener().
+	 */
+	public void progress(SokobanProgress progress);
+
+	/*
+	 * The search is over, and the status says why.
+	 */
+	public void finished(SokobanProgress progress);
+}
@@ -0,0 +1,201 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Where the man can walk to without pushing anything.
+ *
+ * Every search over pushes floods the man's region over and over, so all
+ * of the space is allocated once per board and nothing after that. Squares
+ * are marked with a generation number rather than cleared between calls,
+ * and as each square joins the queue only once a queue as long as the board
+ * never fills up.
+ *
+ * After fill(), the region can be asked for the distance and last step to
+ * each square, its top left square, which stands for the whole region
+ * when only pushes are counted, and the pushes the man could make from it.
+ */
+public final class SokobanReach
+{
+	private int			cells;
+	private long[]	walls;
+	private long[]	dead;
+	private int[]		step;
+
+	private int[]		visited;
+	private int			generation;
+	private int[]		distance;
+	private byte[]	arrival;
+	private int[]		queue;
+	private int			size;
+	private int			first;
+
+	private long[]	blocks;
+	private int			offset;
+
+	private int[]		pushes;
+	private int			deadPushes;
+
+	public SokobanReach(SokobanBoard board)
+	{
+		int stride = board.stride();
+
+		cells	= board.cells();
+		walls	= board.walls();
+		dead	= board.dead();
+		step	= new int[] { -stride, stride, -1, 1 };
+
+		visited		= new int[cells];
+		distance	= new int[cells];
+		arrival		= new byte[cells];
+		queue			= new int[cells];
+		pushes		= new int[4 * cells];
+	}
+
+	/*
+	 * Flood out from the man's square with the blocks set in blocks, read
+	 * from word offset onwards. Returns the top left square reached.
+	 */
+	public int fill(long[] blocks, int offset, int man)
+	{
+		this.blocks = blocks;
+		this.offset = offset;
+
+		if (++generation == 0)
+		{
+			for (int cell = 0; cell < cells; ++cell)
+				visited[cell] = 0;
+
+			generation = 1;
+		}
+
+		int head	= 0;
+		int tail	= 0;
+
+		first = man;
+
+		queue[tail++]		= man;
+		visited[man]		= generation;
+		distance[man]		= 0;
+
+		while (head < tail)
+		{
+			int cell = queue[head++];
+
+			if (cell < first)
+				first = cell;
+
+			for (int d = 0; d < 4; ++d)
+			{
+				int next = cell + step[d];
+
+				if (visited[next] == generation)
+					continue;
+
+				if (SokobanBoard.has(walls, next) || block(next))
+					continue;
+
+				visited[next]		= generation;
+				distance[next]	= distance[cell] + 1;
+				arrival[next]		= (byte)d;
+				queue[tail++]		= next;
+			}
+		}
+
+		size = tail;
+
+		return first;
+	}
+
+	public boolean reached(int cell)
+	{
+		return visited[cell] == generation;
+	}
+
+	/*
+	 * Steps from the man's square, or -1 if he can't get there.
+	 */
+	public int distance(int cell)
+	{
+		return reached(cell) ? distance[cell] : -1;
+	}
+
+	/*
+	 * Direction of the last step into a square that was reached, as an
+	 * index into up, down, left, right.
+	 */
+	public int arrival(int cell)
+	{
+		return arrival[cell];
+	}
+
+	public int first()
+	{
+		return first;
+	}
+
+	// Squares reached.
+	public int size()
+	{
+		return size;
+	}
+
+	/*
+	 * Find every push the man can make: a block next to a square he can
+	 * reach with a square beyond it that is free and not dead. Returns how
+	 * many there are, each then given by push(i) as block * 4 + direction.
+	 * Those left out for going onto a dead square are counted by
+	 * deadPushes().
+	 */
+	public int pushes()
+	{
+		int count = 0;
+
+		deadPushes = 0;
+
+		for (int i = 0; i < size; ++i)
+		{
+			int cell = queue[i];
+
+			for (int d = 0; d < 4; ++d)
+			{
+				int block	= cell + step[d];
+				int to		= block + step[d];
+
+				if (!block(block))
+					continue;
+
+				if (SokobanBoard.has(walls, to) || block(to))
+					continue;
+
+				if (SokobanBoard.has(dead, to))
+				{
+					deadPushes++;
+					continue;
+				}
+
+				pushes[count++] = (block << 2) | d;
+			}
+		}
+
+		return count;
+	}
+
+	public int push(int i)
+	{
+		return pushes[i];
+	}
+
+	// Pushes the last pushes() left out because they were onto dead squares.
+	public int deadPushes()
+	{
+		return deadPushes;
+	}
+
+	private boolean block(int cell)
+	{
+		return SokobanBoard.has(blocks, offset, cell);
+	}
+}
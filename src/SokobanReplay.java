@@ -0,0 +1,179 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Plays a LURD solution through on a level as quickly as possible, to see
+ * whether it is legal and whether it solves the level. Nothing is drawn
+ * and there's no deadlock checking or anything else SokobanBoard does
+ * for someone playing.
+ *
+ * A move is legal if the man can take it, and it is a push (an upper case
+ * letter) exactly when there is a block in the way that can go forward.
+ *
+ * The level is a byte per cell with a wall all the way round, so moves
+ * never need bounds checks, and is shared with any copy(). Each copy has
+ * its own cells to play on, which play() resets from the level, so one
+ * copy per thread can play any number of solutions without allocating.
+ */
+public final class SokobanReplay
+{
+	private static final byte	Wall		= 1;
+	private static final byte	Water		= 2;
+	private static final byte	Block		= 4;
+
+	// The level as it starts.
+	private int			stride;
+	private byte[]	level;
+	private int			start;
+	private int			goals;
+
+	// The current state of this copy.
+	private byte[]	cells;
+	private int			man;
+	private int			open;
+	private int			moves;
+	private int			pushes;
+
+	public SokobanReplay(SokobanBoard board)
+	{
+		stride	= board.width() + 2;
+		level		= new byte[stride * (board.height() + 2)];
+
+		for (int i = 0; i < level.length; ++i)
+			level[i] = Wall;
+
+		for (int row = 0; row < board.height(); ++row)
+		{
+			for (int col = 0; col < board.width(); ++col)
+			{
+				int i = (row + 1) * stride + col + 1;
+
+				switch (board.data(row, col))
+				{
+					case SokobanBoard.Wall:
+						continue;
+					case SokobanBoard.Water:
+						level[i] = Water;
+						goals++;
+						break;
+					case SokobanBoard.Block:
+						level[i] = Block;
+						break;
+					case SokobanBoard.BlockOnWater:
+						level[i] = Water | Block;
+						break;
+					case SokobanBoard.Man:
+						level[i] = 0;
+						start = i;
+						break;
+					case SokobanBoard.ManOnWater:
+						level[i] = Water;
+						goals++;
+						start = i;
+						break;
+					default:
+						level[i] = 0;
+						break;
+				}
+			}
+		}
+
+		cells = new byte[level.length];
+	}
+
+	private SokobanReplay(SokobanReplay other)
+	{
+		stride	= other.stride;
+		level		= other.level;
+		start		= other.start;
+		goals		= other.goals;
+		cells		= new byte[level.length];
+	}
+
+	/*
+	 * Another replay of the same level, which can be used at the same time
+	 * as this one.
+	 */
+	public SokobanReplay copy()
+	{
+		return new SokobanReplay(this);
+	}
+
+	/*
+	 * Play length moves from solution, starting at offset, on the level as
+	 * it starts. Returns false at the first move that isn't legal, with
+	 * moves() telling how many were.
+	 */
+	public boolean play(char[] solution, int offset, int length)
+	{
+		System.arraycopy(level, 0, cells, 0, level.length);
+
+		man			= start;
+		open		= goals;
+		moves		= 0;
+		pushes	= 0;
+
+		for (int end = offset + length; offset < end; ++offset)
+		{
+			char c = solution[offset];
+
+			int step = SokobanBoard.yDelta(c) * stride + SokobanBoard.xDelta(c);
+
+			if (0 == step)
+				return false;
+
+			int to = man + step;
+
+			if (0 != (cells[to] & Wall))
+				return false;
+
+			if (0 != (cells[to] & Block))
+			{
+				int beyond = to + step;
+
+				if (!SokobanBoard.push(c) || 0 != (cells[beyond] & (Wall | Block)))
+					return false;
+
+				cells[to]			&= ~Block;
+				cells[beyond]	|= Block;
+
+				if (0 != (cells[to] & Water))
+					open++;
+
+				if (0 != (cells[beyond] & Water))
+					open--;
+
+				pushes++;
+			}
+			else if (SokobanBoard.push(c))
+			{
+				return false;
+			}
+
+			man = to;
+			moves++;
+		}
+
+		return true;
+	}
+
+	// Legal moves made by the last play().
+	public int moves()
+	{
+		return moves;
+	}
+
+	public int pushes()
+	{
+		return pushes;
+	}
+
+	// True if every water had a block on it after the last play().
+	public boolean solved()
+	{
+		return 0 == open;
+	}
+}
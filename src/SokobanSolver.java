@@ -0,0 +1,833 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+/*
+ * Headless A* solver.
+ *
+ * A node is the position of every block plus the square the man stands on
+ * after the push that produced it. Between pushes the man always takes the
+ * shortest walk, so an edge costs that walk plus one and the first solved
+ * node taken off the open list is a solution with the fewest moves.
+ *
+ * Searching for fewest pushes instead makes every edge cost one, and then
+ * only the region the man can reach matters, not the square he is on.
+ * Positions are told apart by the Zobrist hash of the blocks combined with
+ * the key of the man's square, or of the top left square of his region
+ * when counting pushes, looked up in a fixed size SokobanTable.
+ *
+ * Solutions use the same letters as the undo stack: u, d, l, r for walking
+ * and U, D, L, R for pushing.
+ *
+ * How a search is going can be polled with progress(), or a listener can
+ * be told every so often. Both are checked with the time limit, once
+ * every 256 nodes.
+ *
+ * A search can also be made a little at a time with resume(), and in
+ * between best() gives the way to the most promising position so far:
+ * the one with the lowest cost plus estimate, and of those the one with
+ * the lowest estimate, as it is the furthest on.
+ */
+public final class SokobanSolver
+{
+	// Metrics.
+	public static final int		Moves		= 0;
+	public static final int		Pushes	= 1;
+
+	// What became of the last search.
+	public static final int		Solved				= 0;
+	public static final int		Unsolvable		= 1;
+	public static final int		OutOfTime			= 2;
+	public static final int		OutOfMemory		= 3;
+
+	// Bytes per node, leaving out the blocks.
+	private static final int	NodeSize		= 29;
+
+	private int				stride;
+	private int				cells;
+	private int				words;
+	private long[]		walls;
+	private long[]		water;
+	private int				start;
+	private long[]		startBlocks;
+	private int				blockCount;
+	private int				waterCount;
+	private int[]			step;
+	private long[]		dead;
+	private SokobanDeadlock	deadlocks;
+	private SokobanMatching	matching;
+	private long[]		blockKeys;
+	private long[]		manKeys;
+	private long			startHash;
+	private int				metric				= Moves;
+	private int				tableMemory		= 8 << 20;
+	private int				tablePolicy		= SokobanTable.ReplaceDeepest;
+
+	// Nodes, in parallel arrays grown as the search proceeds.
+	private int				count;
+	private long[]		nodeBlocks;
+	private int[]			nodeMan;
+	private int[]			nodeParent;
+	private int[]			nodeCost;
+	private int[]			nodeEstimate;
+	private byte[]		nodeDirection;
+	private long[]		nodeHash;
+
+	private int[]			open;
+	private int				openSize;
+	private SokobanTable	seen;
+
+	// The man's walks from the node being expanded, and the regions of its
+	// children, which have to be found while the walks are still in use.
+	private SokobanReach	walks;
+	private SokobanReach	regions;
+
+	private int				nodes;
+	private long			millis;
+	private int				status;
+	private long			timeLimit			= Long.MAX_VALUE;
+	private long			deadline;
+	private int				memoryLimit		= Integer.MAX_VALUE;
+
+	// For progress(): when the search began, the best bound so far and the
+	// positions thrown away for each reason.
+	private long			began;
+	private int				bound;
+	private int[]			prunes				= new int[SokobanProgress.Prunes];
+	private SokobanProgressListener	listener;
+	private long			period;
+	private long			report;
+
+	// The most promising node other than the start, or -1.
+	private int				best;
+
+	// Set when this solver is one worker of a SokobanParallelSolver. Parent
+	// links then name the worker as well as the node, see ref().
+	private SokobanParallelSolver	parallel;
+	private int				worker;
+	private SokobanSolver[]	owners;
+
+	public SokobanSolver(SokobanBoard board)
+	{
+		owners = new SokobanSolver[] { this };
+
+		stride	= board.stride();
+		cells		= board.cells();
+		walls		= board.walls();
+		water		= board.water();
+		start		= board.man();
+
+		blockKeys	= board.blockKeys();
+		manKeys		= board.manKeys();
+		startHash	= board.hash();
+
+		words				= walls.length;
+		startBlocks	= new long[words];
+
+		System.arraycopy(board.blocks(), 0, startBlocks, 0, words);
+
+		step = new int[4];
+
+		for (int d = 0; d < 4; ++d)
+			step[d] = SokobanBoard.yStep(d) * stride + SokobanBoard.xStep(d);
+
+		walks		= new SokobanReach(board);
+		regions	= new SokobanReach(board);
+
+		dead			= board.dead();
+		deadlocks	= new SokobanDeadlock(board);
+		matching	= new SokobanMatching(board);
+
+		for (int cell = 0; cell < cells; ++cell)
+		{
+			if (SokobanBoard.has(startBlocks, cell))
+				blockCount++;
+
+			if (SokobanBoard.has(water, cell))
+				waterCount++;
+		}
+	}
+
+	SokobanSolver(SokobanBoard board, SokobanParallelSolver parallel, int worker)
+	{
+		this(board);
+
+		this.parallel	= parallel;
+		this.worker		= worker;
+	}
+
+	/*
+	 * Count moves (the default) or pushes.
+	 */
+	public void setMetric(int metric)
+	{
+		this.metric = metric;
+	}
+
+	/*
+	 * Memory cap, in bytes, and replacement policy for the table of
+	 * positions already seen.
+	 */
+	public void setTable(int memory, int policy)
+	{
+		tableMemory = memory;
+		tablePolicy = policy;
+	}
+
+	/*
+	 * Give up after this many milliseconds or once nodes and table together
+	 * would take more than this many bytes.
+	 */
+	public void setLimits(long millis, int memory)
+	{
+		timeLimit		= millis;
+		memoryLimit	= memory;
+	}
+
+	long deadline(long begin)
+	{
+		return timeLimit == Long.MAX_VALUE ? Long.MAX_VALUE : begin + timeLimit;
+	}
+
+	public int status()
+	{
+		return status;
+	}
+
+	public int nodes()
+	{
+		return nodes;
+	}
+
+	public long millis()
+	{
+		return millis;
+	}
+
+	/*
+	 * Tell listener when solve() starts and finishes, and every period
+	 * milliseconds in between.
+	 */
+	public void setListener(SokobanProgressListener listener, long period)
+	{
+		this.listener	= listener;
+		this.period		= period;
+	}
+
+	/*
+	 * How the search is going. Can be called from any thread.
+	 */
+	public SokobanProgress progress()
+	{
+		SokobanProgress progress = new SokobanProgress();
+
+		SokobanTable table = seen;
+
+		progress.status			= status;
+		progress.millis			= null == nodeMan ? millis : System.currentTimeMillis() - began;
+		progress.nodes			= nodes;
+		progress.generated	= count;
+		progress.open				= openSize;
+		progress.bound			= bound;
+
+		if (table != null)
+		{
+			progress.tableSize			= table.size();
+			progress.tableCapacity	= table.capacity();
+			progress.lookups				= table.lookups();
+			progress.hits						= table.hits();
+		}
+
+		System.arraycopy(prunes, 0, progress.prunes, 0, prunes.length);
+
+		return progress;
+	}
+
+	/*
+	 * Returns the shortest solution from the starting position, or null if
+	 * the level cannot be solved.
+	 */
+	public String solve()
+	{
+		long begin = System.currentTimeMillis();
+
+		millis = 0;
+
+		if (listener != null)
+			listener.started(progress());
+
+		String solution = search(deadline(begin));
+
+		millis = System.currentTimeMillis() - begin;
+
+		if (listener != null)
+			listener.finished(progress());
+
+		release();
+
+		return solution;
+	}
+
+	// Let the node storage go between runs.
+	void release()
+	{
+		nodeBlocks		= null;
+		nodeMan				= null;
+		nodeParent		= null;
+		nodeCost			= null;
+		nodeEstimate	= null;
+		nodeDirection	= null;
+		nodeHash			= null;
+		open					= null;
+		seen					= null;
+	}
+
+	/*
+	 * Get ready for a search and add the starting position, unless another
+	 * worker owns it. Returns false if the level can't be solved at all.
+	 */
+	boolean begin(long deadline)
+	{
+		this.deadline = deadline;
+
+		nodes			= 0;
+		count			= 0;
+		openSize	= 0;
+		status		= Unsolvable;
+		began			= System.currentTimeMillis();
+		report		= began + period;
+		bound			= 0;
+		best			= -1;
+
+		for (int i = 0; i < prunes.length; ++i)
+			prunes[i] = 0;
+		seen			= new SokobanTable(Math.min(tableMemory, memoryLimit / 4), tablePolicy);
+
+		if (blockCount < waterCount || !grow(1024))
+			return false;
+
+		System.arraycopy(startBlocks, 0, nodeBlocks, 0, words);
+
+		nodeMan[0]				= start;
+		nodeParent[0]			= -1;
+		nodeCost[0]				= 0;
+		nodeEstimate[0]		= matching.reset(startBlocks, 0);
+		nodeDirection[0]	= -1;
+		nodeHash[0]				= startHash;
+
+		if (nodeEstimate[0] < 0)
+			return false;
+
+		long key = key(0);
+
+		if (null == parallel || parallel.owner(key) == worker)
+			offer(0, key);
+
+		return true;
+	}
+
+	/*
+	 * Search for up to millis more, carrying on from where the last call
+	 * left off. Returns the solution if one is found, otherwise null with
+	 * status() saying why. After OutOfTime it can be called again.
+	 */
+	public String resume(long millis)
+	{
+		long deadline = System.currentTimeMillis() + millis;
+
+		if (null == nodeMan)
+			return search(deadline);
+
+		if (OutOfTime != status)
+			return null;
+
+		this.deadline	= deadline;
+		status				= Unsolvable;
+
+		return run();
+	}
+
+	/*
+	 * The moves to the most promising position found so far, or null if
+	 * nothing has been found beyond the start.
+	 */
+	public String best()
+	{
+		return best < 0 || null == nodeMan ? null : path(ref(best));
+	}
+
+	private String search(long deadline)
+	{
+		if (!begin(deadline))
+			return null;
+
+		return run();
+	}
+
+	// A* until solved, out of nodes, time or memory.
+	private String run()
+	{
+		while (openSize > 0)
+		{
+			int node = pop();
+
+			if (stale(node))
+				continue;
+
+			bound = Math.max(bound, nodeCost[node] + nodeEstimate[node]);
+
+			if (solved(node))
+			{
+				status = Solved;
+				return path(node);
+			}
+
+			tick();
+
+			// Put it back for resume().
+			if (Unsolvable != status)
+			{
+				push(node);
+				return null;
+			}
+
+			walk(node);
+			expand(node);
+		}
+
+		return null;
+	}
+
+	/*
+	 * Expand the best open node if it could lead to a solution cheaper than
+	 * limit, handing solved nodes to the parallel solver. Returns false if
+	 * there is nothing left worth expanding.
+	 */
+	boolean expandNext(int limit)
+	{
+		while (openSize > 0)
+		{
+			int node = pop();
+
+			// Everything still open costs at least as much.
+			if (nodeCost[node] + nodeEstimate[node] >= limit)
+			{
+				openSize = 0;
+				return false;
+			}
+
+			if (stale(node))
+				continue;
+
+			bound = Math.max(bound, nodeCost[node] + nodeEstimate[node]);
+
+			if (solved(node))
+			{
+				parallel.solution(ref(node), nodeCost[node]);
+				return true;
+			}
+
+			tick();
+
+			if (Unsolvable != status)
+				return false;
+
+			walk(node);
+			expand(node);
+
+			return true;
+		}
+
+		return false;
+	}
+
+	// Count a node expanded, and every 256 see if time is up or it is time
+	// to report.
+	private void tick()
+	{
+		if (0 != (++nodes & 0xff))
+			return;
+
+		long now = System.currentTimeMillis();
+
+		if (now > deadline)
+			status = OutOfTime;
+
+		if (listener != null && now >= report)
+		{
+			report = now + period;
+			listener.progress(progress());
+		}
+	}
+
+	// Superseded by a cheaper route to the same position?
+	private boolean stale(int node)
+	{
+		int best = seen.get(key(node));
+
+		if (best >= 0 && best != node && nodeCost[best] <= nodeCost[node])
+		{
+			prunes[SokobanProgress.Stale]++;
+			return true;
+		}
+
+		return false;
+	}
+
+	private void expand(int node)
+	{
+		matching.reset(nodeBlocks, node * words);
+
+		int n = walks.pushes();
+
+		prunes[SokobanProgress.Dead] += walks.deadPushes();
+
+		for (int i = 0; i < n; ++i)
+		{
+			int push	= walks.push(i);
+			int block	= push >> 2;
+			int d			= push & 3;
+
+			if (Pushes == metric)
+				child(node, block, d, nodeCost[node] + 1);
+			else
+				child(node, block, d, nodeCost[node] + walks.distance(block - step[d]) + 1);
+		}
+	}
+
+	private void child(int parent, int block, int d, int cost)
+	{
+		int to = block + step[d];
+
+		// Try the push on the parent's assignment, then put it back.
+		int estimate = matching.move(block, to);
+
+		matching.move(to, block);
+
+		if (estimate < 0)
+		{
+			prunes[SokobanProgress.Unmatched]++;
+			return;
+		}
+
+		int node = slot();
+
+		if (node < 0)
+			return;
+
+		System.arraycopy(nodeBlocks, parent * words, nodeBlocks, node * words, words);
+
+		SokobanBoard.clear(nodeBlocks, node * words, block);
+		SokobanBoard.set(nodeBlocks, node * words, to);
+
+		nodeMan[node]				= block;
+		nodeParent[node]		= ref(parent);
+		nodeCost[node]			= cost;
+		nodeEstimate[node]	= estimate;
+		nodeDirection[node]	= (byte)d;
+		nodeHash[node]			= nodeHash[parent] ^ blockKeys[block] ^ blockKeys[to];
+
+		long key = key(node);
+
+		if (null != parallel && parallel.owner(key) != worker)
+			parallel.send(worker, key, node);
+		else
+			offer(node, key);
+	}
+
+	/*
+	 * The free slot at the end of the node arrays, or -1 if there is no
+	 * memory left for it.
+	 */
+	int slot()
+	{
+		if (count == nodeMan.length && !grow(count * 2))
+			return -1;
+
+		return count;
+	}
+
+	/*
+	 * Add the node built in slot() to the open list, unless its position is
+	 * known to be lost or has already been reached for no more.
+	 */
+	void offer(int node, long key)
+	{
+		int previous = seen.get(key);
+
+		if (previous >= 0 && nodeCost[previous] <= nodeCost[node])
+		{
+			prunes[SokobanProgress.Duplicate]++;
+			return;
+		}
+
+		if (nodeDirection[node] >= 0)
+		{
+			int man		= nodeMan[node];
+			int block	= man + step[nodeDirection[node]];
+
+			switch (deadlocks.check(nodeBlocks, node * words, block, man))
+			{
+				case SokobanDeadlock.Frozen:
+					prunes[SokobanProgress.Frozen]++;
+					return;
+				case SokobanDeadlock.Corral:
+					prunes[SokobanProgress.Corral]++;
+					return;
+			}
+		}
+
+		if (null != parallel && nodeCost[node] + nodeEstimate[node] >= parallel.bound())
+		{
+			prunes[SokobanProgress.Bound]++;
+			return;
+		}
+
+		seen.put(key, node, nodeCost[node]);
+		count++;
+		push(node);
+
+		if (nodeParent[node] >= 0 && (best < 0 || before(node, best)))
+			best = node;
+	}
+
+	// Node numbers as seen by every worker.
+	private int ref(int node)
+	{
+		return node * owners.length + worker;
+	}
+
+	private int parentOf(int ref)
+	{
+		return owners[ref % owners.length].nodeParent[ref / owners.length];
+	}
+
+	void setOwners(SokobanSolver[] owners)
+	{
+		this.owners = owners;
+	}
+
+	/*
+	 * Nodes passed between workers are packed into longs: the key, the block
+	 * hash, the parent and cost, the man, estimate and push direction, then
+	 * the blocks.
+	 */
+	int messageSize()
+	{
+		return 4 + words;
+	}
+
+	void pack(int node, long key, long[] message)
+	{
+		message[0] = key;
+		message[1] = nodeHash[node];
+		message[2] = ((long)nodeParent[node] << 32) | (nodeCost[node] & 0xffffffffL);
+		message[3] =
+			((long)nodeMan[node] << 32) | (nodeEstimate[node] << 8) | (nodeDirection[node] & 0xff);
+
+		System.arraycopy(nodeBlocks, node * words, message, 4, words);
+	}
+
+	void unpack(long[] message, int offset)
+	{
+		int node = slot();
+
+		if (node < 0)
+			return;
+
+		nodeHash[node]			= message[offset + 1];
+		nodeParent[node]		= (int)(message[offset + 2] >> 32);
+		nodeCost[node]			= (int)message[offset + 2];
+		nodeMan[node]				= (int)(message[offset + 3] >> 32);
+		nodeEstimate[node]	= (int)message[offset + 3] >>> 8;
+		nodeDirection[node]	= (byte)message[offset + 3];
+
+		System.arraycopy(message, offset + 4, nodeBlocks, node * words, words);
+
+		offer(node, message[offset]);
+	}
+
+	private boolean solved(int node)
+	{
+		int base = node * words;
+
+		for (int w = 0; w < words; ++w)
+		{
+			if (0 != (water[w] & ~nodeBlocks[base + w]))
+				return false;
+		}
+
+		return true;
+	}
+
+	private long key(int node)
+	{
+		if (Pushes == metric)
+		{
+			int first = regions.fill(nodeBlocks, node * words, nodeMan[node]);
+
+			return nodeHash[node] ^ manKeys[first];
+		}
+
+		return nodeHash[node] ^ manKeys[nodeMan[node]];
+	}
+
+	/*
+	 * Flood the man's region in the given node, for expand() and path().
+	 */
+	private void walk(int node)
+	{
+		walks.fill(nodeBlocks, node * words, nodeMan[node]);
+	}
+
+	/*
+	 * The moves from the start to the node with the given ref(), which may
+	 * belong to any of the owners.
+	 */
+	String path(int ref)
+	{
+		int workers = owners.length;
+		int depth		= 0;
+
+		for (int r = ref; r >= 0; r = parentOf(r))
+			depth++;
+
+		int chain[] = new int[depth];
+
+		for (int r = ref, i = depth - 1; r >= 0; r = parentOf(r), --i)
+			chain[i] = r;
+
+		StringBuffer moves = new StringBuffer();
+
+		for (int i = 1; i < depth; ++i)
+		{
+			SokobanSolver parent	= owners[chain[i - 1] % workers];
+			SokobanSolver child		= owners[chain[i] % workers];
+
+			int node	= chain[i] / workers;
+			int d			= child.nodeDirection[node];
+			int from	= child.nodeMan[node] - step[d];
+
+			parent.walk(chain[i - 1] / workers);
+
+			char steps[] = new char[parent.walks.distance(from)];
+
+			for (int cell = from, k = steps.length - 1; k >= 0; --k)
+			{
+				int a = parent.walks.arrival(cell);
+
+				steps[k] = SokobanBoard.letter(a, false);
+				cell -= step[a];
+			}
+
+			moves.append(steps);
+			moves.append(SokobanBoard.letter(d, true));
+		}
+
+		return moves.toString();
+	}
+
+	private boolean grow(int size)
+	{
+		if (nodeMan != null && size <= nodeMan.length)
+			return true;
+
+		if ((long)size * (NodeSize + words * 8) > memoryLimit - seen.memory())
+		{
+			status = OutOfMemory;
+			return false;
+		}
+
+		long[]	blocks		= new long[size * words];
+		int[]		man				= new int[size];
+		int[]		parent		= new int[size];
+		int[]		cost			= new int[size];
+		int[]		estimate	= new int[size];
+		byte[]	direction	= new byte[size];
+		long[]	hash			= new long[size];
+		int[]		heap			= new int[size];
+
+		if (nodeBlocks != null)
+		{
+			System.arraycopy(nodeBlocks,		0, blocks,		0, count * words);
+			System.arraycopy(nodeMan,				0, man,				0, count);
+			System.arraycopy(nodeParent,		0, parent,		0, count);
+			System.arraycopy(nodeCost,			0, cost,			0, count);
+			System.arraycopy(nodeEstimate,	0, estimate,	0, count);
+			System.arraycopy(nodeDirection,	0, direction,	0, count);
+			System.arraycopy(nodeHash,			0, hash,			0, count);
+			System.arraycopy(open,					0, heap,			0, openSize);
+		}
+
+		nodeBlocks		= blocks;
+		nodeMan				= man;
+		nodeParent		= parent;
+		nodeCost			= cost;
+		nodeEstimate	= estimate;
+		nodeDirection	= direction;
+		nodeHash			= hash;
+		open					= heap;
+
+		return true;
+	}
+
+	// Open list: a binary heap ordered on cost plus estimate.
+
+	private boolean before(int a, int b)
+	{
+		int fa = nodeCost[a] + nodeEstimate[a];
+		int fb = nodeCost[b] + nodeEstimate[b];
+
+		if (fa != fb)
+			return fa < fb;
+
+		return nodeEstimate[a] < nodeEstimate[b];
+	}
+
+	private void push(int node)
+	{
+		int i = openSize++;
+
+		while (i > 0)
+		{
+			int parent = (i - 1) >> 1;
+
+			if (!before(node, open[parent]))
+				break;
+
+			open[i] = open[parent];
+			i = parent;
+		}
+
+		open[i] = node;
+	}
+
+	private int pop()
+	{
+		int top		= open[0];
+		int last	= open[--openSize];
+		int i			= 0;
+
+		for (;;)
+		{
+			int child = 2 * i + 1;
+
+			if (child >= openSize)
+				break;
+
+			if (child + 1 < openSize && before(open[child + 1], open[child]))
+				child++;
+
+			if (!before(open[child], last))
+				break;
+
+			open[i] = open[child];
+			i = child;
+		}
+
+		open[i] = last;
+
+		return top;
+	}
+}
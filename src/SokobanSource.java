@@ -0,0 +1,22 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Somewhere to get levels from: the built-in SokobanLevels or a
+ * SokobanPack.
+ */
+public interface SokobanSource
+{
+	/*
+	 * How many levels there are.
+	 */
+	public int size();
+
+	/*
+	 * A new board for the given level, or null if there is no such level.
+	 */
+	public SokobanBoard board(int level);
+}
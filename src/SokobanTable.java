@@ -0,0 +1,203 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Open addressing table from 64 bit position hashes to node numbers, kept
+ * in plain arrays so that there is nothing to allocate per entry.
+ *
+ * The table doubles until it reaches its memory cap. After that a key that
+ * finds no free slot within a short probe run replaces one of the entries
+ * in that run, chosen by the replacement policy. Growing the table puts
+ * every entry back the same way, so none ends up further away than get()
+ * looks.
+ */
+public final class SokobanTable
+{
+	// Replacement policies.
+	public static final int	ReplaceAlways		= 0;
+	public static final int	ReplaceDeepest	= 1;
+
+	// Bytes per entry: the key, the value and its cost.
+	private static final int	EntrySize	= 16;
+	private static final int	Probes		= 16;
+
+	private long[]	keys;
+	private int[]		values;
+	private int[]		costs;
+	private int			mask;
+	private int			size;
+	private int			limit;
+	private int			policy;
+
+	private long		lookups;
+	private long		hits;
+	private long		replaced;
+
+	public SokobanTable(int memory, int policy)
+	{
+		this.policy = policy;
+
+		limit = 1024;
+
+		while (limit * 2 * EntrySize <= memory)
+			limit *= 2;
+
+		allocate(Math.min(1024, limit));
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public int capacity()
+	{
+		return keys.length;
+	}
+
+	// Bytes currently allocated.
+	public long memory()
+	{
+		return (long)keys.length * EntrySize;
+	}
+
+	public long lookups()
+	{
+		return lookups;
+	}
+
+	public long hits()
+	{
+		return hits;
+	}
+
+	public long replaced()
+	{
+		return replaced;
+	}
+
+	public void clear()
+	{
+		for (int i = 0; i < keys.length; ++i)
+			keys[i] = 0;
+
+		size			= 0;
+		lookups		= 0;
+		hits			= 0;
+		replaced	= 0;
+	}
+
+	/*
+	 * Returns the value stored for key, or -1.
+	 */
+	public int get(long key)
+	{
+		key = nonZero(key);
+
+		lookups++;
+
+		for (int i = index(key), n = 0; n < Probes; i = (i + 1) & mask, ++n)
+		{
+			if (keys[i] == key)
+			{
+				hits++;
+				return values[i];
+			}
+
+			if (0 == keys[i])
+				break;
+		}
+
+		return -1;
+	}
+
+	/*
+	 * Store value against key. The cost is what the replacement policy
+	 * looks at once the table is full.
+	 */
+	public void put(long key, int value, int cost)
+	{
+		key = nonZero(key);
+
+		if (size * 2 >= keys.length && keys.length < limit)
+			rehash(keys.length * 2);
+
+		store(key, value, cost);
+	}
+
+	/*
+	 * Store a non-zero key within Probes slots of where it hashes to, as
+	 * get() looks no further, replacing an entry if they are all taken.
+	 */
+	private void store(long key, int value, int cost)
+	{
+		int victim = -1;
+
+		for (int i = index(key), n = 0; n < Probes; i = (i + 1) & mask, ++n)
+		{
+			if (keys[i] == key)
+			{
+				values[i]	= value;
+				costs[i]	= cost;
+				return;
+			}
+
+			if (0 == keys[i])
+			{
+				keys[i]		= key;
+				values[i]	= value;
+				costs[i]	= cost;
+				size++;
+				return;
+			}
+
+			if (victim < 0 || (ReplaceDeepest == policy && costs[i] > costs[victim]))
+				victim = i;
+		}
+
+		if (ReplaceDeepest == policy && costs[victim] < cost)
+			return;
+
+		keys[victim]		= key;
+		values[victim]	= value;
+		costs[victim]		= cost;
+		replaced++;
+	}
+
+	private int index(long key)
+	{
+		return (int)(key ^ (key >>> 32)) & mask;
+	}
+
+	private static long nonZero(long key)
+	{
+		return 0 == key ? 1 : key;
+	}
+
+	private void allocate(int capacity)
+	{
+		keys		= new long[capacity];
+		values	= new int[capacity];
+		costs		= new int[capacity];
+		mask		= capacity - 1;
+		size		= 0;
+	}
+
+	private void rehash(int capacity)
+	{
+		long[]	oldKeys		= keys;
+		int[]		oldValues	= values;
+		int[]		oldCosts	= costs;
+
+		allocate(capacity);
+
+		for (int i = 0; i < oldKeys.length; ++i)
+		{
+			if (oldKeys[i] != 0)
+				store(oldKeys[i], oldValues[i], oldCosts[i]);
+		}
+	}
+}
@@ -0,0 +1,31 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+import info.rikkus.sokoban.jmh.SokobanWorkload;
+
+/*
+ * Lets the JMH benchmark run SokobanBench's benchmarks on the built in
+ * levels. See SokobanWorkload.
+ */
+public final class SokobanJmhWorkload implements SokobanWorkload
+{
+	private SokobanBench	bench;
+	private int						which;
+
+	public void setUp(String name, long timeLimit)
+	{
+		which = SokobanBench.which(name);
+
+		if (which < 0)
+			throw new IllegalArgumentException("No benchmark " + name);
+
+		bench = new SokobanBench(new SokobanLevels(), timeLimit);
+	}
+
+	public long round()
+	{
+		return bench.round(which);
+	}
+}
@@ -0,0 +1,73 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+package info.rikkus.sokoban.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * SokobanBench's benchmarks under JMH. Each operation is one round of a
+ * benchmark over every built in level, so the scores are per round, and
+ * the GC profiler's gc.alloc.rate.norm is the bytes a round allocates.
+ *
+ * main() always adds the GC profiler and otherwise takes the usual JMH
+ * options, for instance -p name=push to run just one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SokobanBenchmark
+{
+	@Param({ "data", "reset", "step", "push", "replay", "verify" })
+	public String	name;
+
+	private SokobanWorkload	workload;
+
+	@Setup
+	public void setUp() throws Exception
+	{
+		workload = (SokobanWorkload)Class.forName("SokobanJmhWorkload")
+			.getDeclaredConstructor().newInstance();
+
+		workload.setUp(name, 2000);
+	}
+
+	@Benchmark
+	public long round()
+	{
+		return workload.round();
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		Options options = new OptionsBuilder()
+			.parent(new CommandLineOptions(args))
+			.include(SokobanBenchmark.class.getName())
+			.addProfiler(GCProfiler.class)
+			.build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,24 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+package info.rikkus.sokoban.jmh;
+
+/*
+ * One of SokobanBench's benchmarks, seen from here. The game classes are
+ * in the default package, which JMH can't generate code for and a named
+ * package can't import, so SokobanJmhWorkload implements this there and
+ * the benchmark loads it by name.
+ */
+public interface SokobanWorkload
+{
+	/*
+	 * Get the levels ready for the benchmark with the given name, solving
+	 * them for up to timeLimit ms each where it needs solutions.
+	 */
+	void setUp(String name, long timeLimit);
+
+	// Run the benchmark once on every level, returning the operations done.
+	long round();
+}
@@ -0,0 +1,141 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+import java.lang.management.ManagementFactory;
+
+/*
+ * Checks that SokobanReach.fill() and pushes() allocate nothing, as the
+ * solver and deadlock checks call them for every node.
+ *
+ * On every level the man is put on each square he can reach in turn and
+ * the flood and its pushes are worked out, many times over. Everything is
+ * run once to warm up, then again while the bytes allocated by this thread
+ * are counted, which needs a JVM whose ThreadMXBean can count them. The
+ * compiler can remove allocations that don't escape, which a phone won't,
+ * so run it with -Xint (and fewer rounds) to count those too.
+ *
+ * Prints each level that allocated and exits with status 1 if any did.
+ *
+ *   SokobanAllocCheck [-rounds n] [-pack /name.xsb]
+ */
+public final class SokobanAllocCheck
+{
+	private com.sun.management.ThreadMXBean	threads;
+	private long														thread;
+
+	private SokobanSource	levels;
+	private int						rounds	= 1000;
+	private long					calls;
+	private int						failed;
+
+	public SokobanAllocCheck(SokobanSource levels)
+	{
+		this.levels = levels;
+
+		threads	= (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		thread	= Thread.currentThread().getId();
+
+		threads.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	public void setRounds(int rounds)
+	{
+		this.rounds = rounds;
+	}
+
+	public void check()
+	{
+		for (int level = 0; level < levels.size(); ++level)
+		{
+			SokobanBoard board = levels.board(level);
+
+			if (null == board)
+				continue;
+
+			SokobanReach	reach		= new SokobanReach(board);
+			long[]				blocks	= board.blocks();
+
+			reach.fill(blocks, 0, board.man());
+
+			int starts[] = new int[reach.size()];
+
+			for (int i = 0, cell = reach.first(); i < starts.length; ++i, ++cell)
+			{
+				while (!reach.reached(cell))
+					cell++;
+
+				starts[i] = cell;
+			}
+
+			run(reach, blocks, starts);
+
+			long before	= allocated();
+			long work		= run(reach, blocks, starts);
+			long bytes	= allocated() - before;
+
+			calls += 2L * rounds * starts.length;
+
+			if (bytes > 0)
+			{
+				failed++;
+
+				System.out.println("Level " + level + ": " + bytes + " bytes allocated");
+			}
+
+			// Keep the work from being optimised away.
+			if (work < 0)
+				System.out.println(work);
+		}
+	}
+
+	private long run(SokobanReach reach, long[] blocks, int[] starts)
+	{
+		long work = 0;
+
+		for (int round = 0; round < rounds; ++round)
+		{
+			for (int i = 0; i < starts.length; ++i)
+			{
+				work += reach.fill(blocks, 0, starts[i]);
+				work += reach.pushes();
+			}
+		}
+
+		return work;
+	}
+
+	private long allocated()
+	{
+		return threads.getThreadAllocatedBytes(thread);
+	}
+
+	public static void main(String[] args)
+	{
+		SokobanSource	levels	= new SokobanLevels();
+		int						rounds	= 1000;
+
+		for (int i = 0; i < args.length; ++i)
+		{
+			if (args[i].equals("-rounds"))
+				rounds = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-pack"))
+				levels = SokobanBinaryPack.open(args[++i]);
+		}
+
+		SokobanAllocCheck check = new SokobanAllocCheck(levels);
+
+		check.setRounds(rounds);
+		check.check();
+
+		System.out.println
+			(
+			 "Checked " + check.calls + " calls, " + check.failed +
+			 " levels allocated"
+			);
+
+		if (check.failed > 0 || 0 == check.calls)
+			System.exit(1);
+	}
+}
@@ -0,0 +1,253 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Solves a whole set of levels on several threads and prints a line for
+ * each one as soon as it is done.
+ *
+ * Each thread takes the next unsolved level and runs its own solver, so
+ * threads only ever meet to take a level number or print a line. With
+ * -workers each level is itself split over that many threads by a
+ * SokobanParallelSolver.
+ *
+ * The -memory limit is for the whole batch and is shared out between the
+ * threads. It is cut down to three quarters of the most the JVM will have,
+ * so that the solvers run out of room before the JVM does.
+ *
+ * Levels come from the built-in set, or with -pack from an XSB or compiled
+ * pack found on the class path.
+ *
+ * With -progress, how each search is going is printed to standard error
+ * every so many ms.
+ *
+ *   SokobanBatch [-threads n] [-workers n] [-time ms] [-memory mb] [-pushes]
+ *                [-pack /name.xsb] [-progress ms]
+ */
+public final class SokobanBatch implements Runnable
+{
+	private SokobanSource	levels;
+	private int						count;
+	private int						next;
+	private int						metric;
+	private long					timeLimit;
+	private int						memoryLimit;
+	private int						workers				= 1;
+	private long					period;
+	private int						solved;
+
+	public SokobanBatch(SokobanSource levels, int metric, long timeLimit, int memoryLimit)
+	{
+		this.levels				= levels;
+		this.count				= levels.size();
+		this.metric				= metric;
+		this.timeLimit		= timeLimit;
+		this.memoryLimit	= memoryLimit;
+	}
+
+	public void setWorkers(int workers)
+	{
+		this.workers = workers;
+	}
+
+	/*
+	 * Print how searches are going every period ms, or never if 0.
+	 */
+	public void setProgress(long period)
+	{
+		this.period = period;
+	}
+
+	public int solved()
+	{
+		return solved;
+	}
+
+	public void run()
+	{
+		for (int level = next(); level >= 0; level = next())
+		{
+			SokobanBoard board = levels.board(level);
+
+			if (null == board)
+			{
+				report(level, SokobanSolver.Unsolvable, 0, 0, null);
+				continue;
+			}
+
+			if (workers > 1)
+			{
+				SokobanParallelSolver solver = new SokobanParallelSolver(board, workers);
+
+				solver.setMetric(metric);
+				solver.setLimits(timeLimit, memoryLimit);
+
+				if (period > 0)
+					solver.setListener(new Reporter(level), period);
+
+				String solution = solver.solve();
+
+				report(level, solver.status(), solver.nodes(), solver.millis(), solution);
+			}
+			else
+			{
+				SokobanSolver solver = new SokobanSolver(board);
+
+				solver.setMetric(metric);
+				solver.setLimits(timeLimit, memoryLimit);
+
+				if (period > 0)
+					solver.setListener(new Reporter(level), period);
+
+				String solution = solver.solve();
+
+				report(level, solver.status(), solver.nodes(), solver.millis(), solution);
+			}
+		}
+	}
+
+	// Prints a search's progress, for -progress.
+	private static final class Reporter implements SokobanProgressListener
+	{
+		private int level;
+
+		Reporter(int level)
+		{
+			this.level = level;
+		}
+
+		public void started(SokobanProgress progress)
+		{
+		}
+
+		public void progress(SokobanProgress progress)
+		{
+			System.err.println("Level " + level + ": " + progress);
+		}
+
+		public void finished(SokobanProgress progress)
+		{
+			System.err.println("Level " + level + ": done, " + progress);
+		}
+	}
+
+	private synchronized int next()
+	{
+		if (next == count)
+			return -1;
+
+		return next++;
+	}
+
+	private synchronized void report
+		(int level, int status, int nodes, long millis, String solution)
+	{
+		StringBuffer line = new StringBuffer();
+
+		line.append("Level ").append(level).append(": ");
+
+		switch (status)
+		{
+			case SokobanSolver.Solved:
+				int pushes = 0;
+
+				for (int i = 0; i < solution.length(); ++i)
+				{
+					if (SokobanBoard.push(solution.charAt(i)))
+						pushes++;
+				}
+
+				line.append("solved, ");
+				line.append(solution.length()).append(" moves, ");
+				line.append(pushes).append(" pushes, ");
+
+				solved++;
+				break;
+			case SokobanSolver.Unsolvable:
+				line.append("no solution, ");
+				break;
+			case SokobanSolver.OutOfTime:
+				line.append("out of time, ");
+				break;
+			case SokobanSolver.OutOfMemory:
+				line.append("out of memory, ");
+				break;
+		}
+
+		line.append(nodes).append(" nodes, ");
+		line.append(millis).append(" ms");
+
+		if (solution != null)
+			line.append(' ').append(solution);
+
+		System.out.println(line.toString());
+	}
+
+	public static void main(String[] args)
+	{
+		int		threads	= 4;
+		int		workers	= 1;
+		int		metric	= SokobanSolver.Moves;
+		long	time		= Long.MAX_VALUE;
+		long	memory	= 256 << 20;
+		long	period	= 0;
+
+		SokobanSource levels = new SokobanLevels();
+
+		for (int i = 0; i < args.length; ++i)
+		{
+			if (args[i].equals("-threads"))
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-workers"))
+				workers = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-time"))
+				time = Long.parseLong(args[++i]);
+			else if (args[i].equals("-memory"))
+				memory = Long.parseLong(args[++i]) << 20;
+			else if (args[i].equals("-pushes"))
+				metric = SokobanSolver.Pushes;
+			else if (args[i].equals("-pack"))
+				levels = SokobanBinaryPack.open(args[++i]);
+			else if (args[i].equals("-progress"))
+				period = Long.parseLong(args[++i]);
+		}
+
+		memory = Math.min(memory, Runtime.getRuntime().maxMemory() / 4 * 3) / threads;
+
+		SokobanBatch batch =
+			new SokobanBatch(levels, metric, time, (int)Math.min(memory, Integer.MAX_VALUE));
+
+		batch.setWorkers(workers);
+		batch.setProgress(period);
+
+		long begin = System.currentTimeMillis();
+
+		Thread runners[] = new Thread[threads];
+
+		for (int i = 0; i < threads; ++i)
+		{
+			runners[i] = new Thread(batch);
+			runners[i].start();
+		}
+
+		for (int i = 0; i < threads; ++i)
+		{
+			try
+			{
+				runners[i].join();
+			}
+			catch (InterruptedException e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		System.out.println
+			(
+			 "Solved " + batch.solved() + " of " + levels.size() +
+			 " in " + (System.currentTimeMillis() - begin) + " ms"
+			);
+	}
+}
@@ -0,0 +1,323 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Times the game logic the MIDlet leans on, headless, and prints one line
+ * per benchmark that can be kept and compared with a later run:
+ *
+ *   name <tab> operations <tab> ns per operation <tab> bytes per operation
+ *
+ * Each benchmark is run over every level for the measuring time to warm
+ * up, then again, and only the second run counts. Allocation is the change
+ * in memory in use over a measured run from just after a collection, so
+ * it is only a rough figure, and is left blank if a collection happened
+ * during the run and made it come out negative.
+ *
+ * The solutions replayed come from solving every level first, which isn't
+ * timed. Levels that can't be solved in the time limit are left out.
+ *
+ *   SokobanBench [-time ms] [-measure ms] [-pack /name.xsb] [bench ...]
+ */
+public final class SokobanBench
+{
+	private static final String	Names[] =
+	{
+		"data",
+		"reset",
+		"step",
+		"push",
+		"replay",
+		"verify"
+	};
+
+	private static final int		Data		= 0;
+	private static final int		Reset		= 1;
+	private static final int		Step		= 2;
+	private static final int		Push		= 3;
+	private static final int		Replay	= 4;
+	private static final int		Verify	= 5;
+
+	private SokobanSource		levels;
+	private int							count;
+	private long						measure		= 1000;
+
+	// Per level, or null where the level couldn't be read or solved.
+	private SokobanBoard[]	boards;
+	private char[][]				solutions;
+	private SokobanReplay[]	replays;
+
+	// A way the man can step off his square and back, as dy, dx.
+	private int[]						stepY;
+	private int[]						stepX;
+
+	// Moves before the first push of each solution.
+	private int[]						firstPush;
+
+	public SokobanBench(SokobanSource levels, long timeLimit)
+	{
+		this.levels	= levels;
+		this.count	= levels.size();
+
+		boards			= new SokobanBoard[count];
+		solutions		= new char[count][];
+		replays			= new SokobanReplay[count];
+		stepY				= new int[count];
+		stepX				= new int[count];
+		firstPush		= new int[count];
+
+		for (int level = 0; level < count; ++level)
+		{
+			SokobanBoard board = levels.board(level);
+
+			if (null == board)
+				continue;
+
+			boards[level] = board;
+
+			for (int d = 0; d < 4 && 0 == stepY[level] + stepX[level]; ++d)
+			{
+				int dy = SokobanBoard.yStep(d);
+				int dx = SokobanBoard.xStep(d);
+
+				int result = board.move(dy, dx);
+
+				if (0 == result)
+					continue;
+
+				board.undo(dy, dx, 0 != (result & SokobanBoard.Pushed));
+
+				if (0 == (result & SokobanBoard.Pushed))
+				{
+					stepY[level] = dy;
+					stepX[level] = dx;
+				}
+			}
+
+			SokobanSolver solver = new SokobanSolver(levels.board(level));
+
+			solver.setLimits(timeLimit, 64 << 20);
+
+			String solution = solver.solve();
+
+			if (null == solution)
+				continue;
+
+			solutions[level]	= solution.toCharArray();
+			replays[level]		= new SokobanReplay(board);
+
+			while (!SokobanBoard.push(solution.charAt(firstPush[level])))
+				firstPush[level]++;
+		}
+	}
+
+	public void setMeasure(long measure)
+	{
+		this.measure = measure;
+	}
+
+	/*
+	 * Run the named benchmark and print its line.
+	 */
+	public void bench(int which)
+	{
+		run(which, measure);
+
+		Runtime runtime = Runtime.getRuntime();
+
+		runtime.gc();
+
+		long used		= runtime.totalMemory() - runtime.freeMemory();
+		long begin	= System.currentTimeMillis();
+		long ops		= run(which, measure);
+		long millis	= System.currentTimeMillis() - begin;
+		long bytes	= runtime.totalMemory() - runtime.freeMemory() - used;
+
+		StringBuffer line = new StringBuffer();
+
+		line.append(Names[which]).append('\t');
+		line.append(ops).append('\t');
+		line.append(0 == ops ? 0 : millis * 1000000 / ops).append('\t');
+
+		if (bytes >= 0 && ops > 0)
+			line.append(bytes / ops);
+
+		System.out.println(line.toString());
+	}
+
+	// Run a benchmark over every level until millis have passed.
+	private long run(int which, long millis)
+	{
+		long ops = 0;
+		long end = System.currentTimeMillis() + millis;
+
+		do
+		{
+			ops += round(which);
+		}
+		while (System.currentTimeMillis() < end);
+
+		return ops;
+	}
+
+	// Run a benchmark once on every level, returning how many operations it did.
+	long round(int which)
+	{
+		long ops = 0;
+
+		for (int level = 0; level < count; ++level)
+		{
+			if (boards[level] != null)
+				ops += run(which, level);
+		}
+
+		return ops;
+	}
+
+	// The benchmark with the given name, or -1 if there is none.
+	static int which(String name)
+	{
+		for (int which = 0; which < Names.length; ++which)
+		{
+			if (Names[which].equals(name))
+				return which;
+		}
+
+		return -1;
+	}
+
+	// Run a benchmark once on a level, returning how many operations it did.
+	private int run(int which, int level)
+	{
+		SokobanBoard	board			= boards[level];
+		char[]				solution	= solutions[level];
+
+		switch (which)
+		{
+			case Data:
+				int sum = 0;
+
+				for (int row = 0; row < board.height(); ++row)
+				{
+					for (int col = 0; col < board.width(); ++col)
+						sum += board.data(row, col);
+				}
+
+				return sum > 0 ? board.width() * board.height() : 0;
+
+			case Reset:
+				return null == levels.board(level) ? 0 : 1;
+
+			case Step:
+				int dy = stepY[level];
+				int dx = stepX[level];
+
+				if (0 == dy + dx)
+					return 0;
+
+				for (int i = 0; i < 16; ++i)
+				{
+					board.move(dy, dx);
+					board.move(-dy, -dx);
+				}
+
+				return 32;
+
+			case Push:
+				if (null == solution)
+					return 0;
+
+				int before = firstPush[level];
+
+				for (int i = 0; i < before; ++i)
+					move(board, solution[i]);
+
+				char push = solution[before];
+
+				for (int i = 0; i < 16; ++i)
+				{
+					move(board, push);
+					undo(board, push);
+				}
+
+				for (int i = before - 1; i >= 0; --i)
+					undo(board, solution[i]);
+
+				return 16;
+
+			case Replay:
+				if (null == solution)
+					return 0;
+
+				for (int i = 0; i < solution.length; ++i)
+					move(board, solution[i]);
+
+				for (int i = solution.length - 1; i >= 0; --i)
+					undo(board, solution[i]);
+
+				return solution.length * 2;
+
+			case Verify:
+				if (null == solution)
+					return 0;
+
+				return replays[level].play(solution, 0, solution.length) ? 1 : 0;
+		}
+
+		return 0;
+	}
+
+	private static void move(SokobanBoard board, char c)
+	{
+		board.move(SokobanBoard.yDelta(c), SokobanBoard.xDelta(c));
+	}
+
+	private static void undo(SokobanBoard board, char c)
+	{
+		board.undo(SokobanBoard.yDelta(c), SokobanBoard.xDelta(c), SokobanBoard.push(c));
+	}
+
+	public static void main(String[] args)
+	{
+		long		time			= 10000;
+		long		measure		= 1000;
+		String	pack			= null;
+		boolean	chosen[]	= new boolean[Names.length];
+		boolean	any				= false;
+
+		for (int i = 0; i < args.length; ++i)
+		{
+			if (args[i].equals("-time"))
+				time = Long.parseLong(args[++i]);
+			else if (args[i].equals("-measure"))
+				measure = Long.parseLong(args[++i]);
+			else if (args[i].equals("-pack"))
+				pack = args[++i];
+
+			int which = which(args[i]);
+
+			if (which >= 0)
+			{
+				chosen[which]	= true;
+				any						= true;
+			}
+		}
+
+		SokobanSource levels =
+			null == pack ? (SokobanSource)new SokobanLevels() : SokobanBinaryPack.open(pack);
+
+		SokobanBench bench = new SokobanBench(levels, time);
+
+		bench.setMeasure(measure);
+
+		System.out.println("# benchmark\toperations\tns/op\tbytes/op");
+
+		for (int which = 0; which < Names.length; ++which)
+		{
+			if (chosen[which] || !any)
+				bench.bench(which);
+		}
+	}
+}
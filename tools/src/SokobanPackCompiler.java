@@ -0,0 +1,96 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+import java.io.*;
+
+/*
+ * Compiles the XSB pack named on the command line, as a resource on the
+ * class path, into the format SokobanBinaryPack reads, and writes it to
+ * standard output.
+ *
+ * Widths and heights are stored in a byte each, so a level wider or
+ * taller than 255 squares is an error rather than a corrupt pack.
+ *
+ *   java SokobanPackCompiler /name.xsb > name.skp
+ */
+public final class SokobanPackCompiler
+{
+	private static final int	Largest	= 255;
+
+	private static void put(byte[] packed, int i, int code)
+	{
+		int bit		= i * 3;
+		int index	= bit >> 3;
+		int shift	= bit & 7;
+
+		packed[index] |= (byte)(code << shift);
+
+		if (shift > 5)
+			packed[index + 1] |= (byte)(code >> (8 - shift));
+	}
+
+	private static int code(char c)
+	{
+		for (int code = 0; code < SokobanBinaryPack.Cells.length; ++code)
+		{
+			if (SokobanBinaryPack.Cells[code] == c)
+				return code;
+		}
+
+		return 1;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		SokobanPack pack	= new SokobanPack(args[0]);
+		int					count	= pack.size();
+
+		ByteArrayOutputStream	levels	= new ByteArrayOutputStream();
+		int										offsets[]	= new int[count];
+
+		for (int level = 0; level < count; ++level)
+		{
+			SokobanBoard board = pack.board(level);
+
+			offsets[level] = SokobanBinaryPack.HeaderSize + 4 * count + levels.size();
+
+			// Keep the numbering for levels that can't be played.
+			int width		= null == board ? 0 : board.width();
+			int height	= null == board ? 0 : board.height();
+
+			if (width > Largest || height > Largest)
+			{
+				throw new IOException
+					(
+					 "Level " + level + " is " + width + "x" + height +
+					 ", more than " + Largest + " squares on a side"
+					);
+			}
+
+			byte packed[] = new byte[(width * height * 3 + 7) >> 3];
+
+			for (int row = 0; row < height; ++row)
+			{
+				for (int col = 0; col < width; ++col)
+					put(packed, row * width + col, code(board.data(row, col)));
+			}
+
+			levels.write(width);
+			levels.write(height);
+			levels.write(packed, 0, packed.length);
+		}
+
+		DataOutputStream out = new DataOutputStream(System.out);
+
+		out.writeInt(SokobanBinaryPack.Magic);
+		out.writeInt(count);
+
+		for (int level = 0; level < count; ++level)
+			out.writeInt(offsets[level]);
+
+		out.write(levels.toByteArray());
+		out.flush();
+	}
+}
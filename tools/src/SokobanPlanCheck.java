@@ -0,0 +1,161 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+
+/*
+ * Checks SokobanBoard.pushTo() on every level: for each block and every
+ * square that isn't a wall, whatever plan it gives is played on a fresh
+ * copy of the level and must
+ *
+ *   - be legal, with a capital letter exactly for each push,
+ *   - not go on after the level is solved, as the game has moved on to
+ *     the next level by then,
+ *   - leave the block on the square asked for, unless it solved the level
+ *     first, with every other block where it was.
+ *
+ * Prints each plan that fails and exits with status 1 if there were any.
+ *
+ *   SokobanPlanCheck [-pack /name.xsb]
+ */
+public final class SokobanPlanCheck
+{
+	private SokobanSource	levels;
+	private int						plans;
+	private int						early;
+	private int						failed;
+
+	public SokobanPlanCheck(SokobanSource levels)
+	{
+		this.levels = levels;
+	}
+
+	public void check()
+	{
+		for (int level = 0; level < levels.size(); ++level)
+		{
+			SokobanBoard board = levels.board(level);
+
+			if (null == board)
+				continue;
+
+			for (int row = 0; row < board.height(); ++row)
+			{
+				for (int col = 0; col < board.width(); ++col)
+				{
+					if (block(board, row, col))
+						check(level, board, row, col);
+				}
+			}
+		}
+	}
+
+	private void check(int level, SokobanBoard board, int row, int col)
+	{
+		for (int toRow = 0; toRow < board.height(); ++toRow)
+		{
+			for (int toCol = 0; toCol < board.width(); ++toCol)
+			{
+				if (SokobanBoard.Wall == board.data(toRow, toCol))
+					continue;
+
+				String plan = board.pushTo(row, col, toRow, toCol);
+
+				if (null == plan)
+					continue;
+
+				plans++;
+
+				String error = play(level, plan, row, col, toRow, toCol);
+
+				if (error != null)
+				{
+					failed++;
+
+					System.out.println
+						(
+						 "Level " + level + ": " + row + "," + col + " to " +
+						 toRow + "," + toCol + ": " + plan + ": " + error
+						);
+				}
+			}
+		}
+	}
+
+	// Play a plan on a fresh copy of the level. Returns what went wrong.
+	private String play(int level, String plan, int row, int col, int toRow, int toCol)
+	{
+		SokobanBoard played = levels.board(level);
+
+		for (int i = 0; i < plan.length(); ++i)
+		{
+			char	c		= plan.charAt(i);
+			int		dy	= SokobanBoard.yDelta(c);
+			int		dx	= SokobanBoard.xDelta(c);
+
+			if (played.solved())
+				return "goes on after the level is solved";
+
+			boolean mine = played.manY() + dy == row && played.manX() + dx == col;
+
+			int result = played.move(dy, dx);
+
+			if (0 == result)
+				return "illegal move " + (i + 1);
+
+			if (SokobanBoard.push(c) != (0 != (result & SokobanBoard.Pushed)))
+				return "wrong letter for move " + (i + 1);
+
+			if (SokobanBoard.push(c))
+			{
+				if (!mine)
+					return "pushed another block at move " + (i + 1);
+
+				row += dy;
+				col += dx;
+			}
+		}
+
+		if (row == toRow && col == toCol)
+			return null;
+
+		if (!played.solved())
+			return "the block isn't there";
+
+		early++;
+
+		return null;
+	}
+
+	private static boolean block(SokobanBoard board, int row, int col)
+	{
+		char c = board.data(row, col);
+
+		return SokobanBoard.Block == c || SokobanBoard.BlockOnWater == c;
+	}
+
+	public static void main(String[] args)
+	{
+		SokobanSource levels = new SokobanLevels();
+
+		for (int i = 0; i < args.length; ++i)
+		{
+			if (args[i].equals("-pack"))
+				levels = SokobanBinaryPack.open(args[++i]);
+		}
+
+		SokobanPlanCheck check = new SokobanPlanCheck(levels);
+
+		check.check();
+
+		System.out.println
+			(
+			 "Checked " + check.plans + " plans, " + check.early +
+			 " solving the level on the way, " + check.failed + " failed"
+			);
+
+		if (check.failed > 0 || 0 == check.plans)
+			System.exit(1);
+	}
+}
@@ -0,0 +1,320 @@
+/* vim: set ts=2 sw=2 noet: 
+ * Sokoban for J2ME on SE t610
+ *
+ * Copyright (C) 2003 Rik Hemsley <rik@rikkus.info>
+ */
+import java.io.*;
+
+/*
+ * Checks solutions read from standard input against a set of levels, on
+ * several threads, and prints a line for each in the order they were read.
+ *
+ * A line is taken to be a solution if its last word is made only of LURD
+ * letters, and the level is the first number on the line. So both
+ * "12 rrDDlu" and SokobanBatch output will do, and any other line is
+ * passed over.
+ *
+ * Each thread takes the next Chunk lines, plays them on its own copies of
+ * SokobanReplay and then waits its turn to print them, so threads only
+ * meet once per chunk and nothing is allocated per solution.
+ *
+ *   SokobanVerify [-threads n] [-pack /name.xsb] < solutions
+ */
+public final class SokobanVerify implements Runnable
+{
+	private static final int	Chunk	= 1024;
+
+	private SokobanSource		levels;
+	private SokobanReplay[]	replays;
+
+	private InputStream			in;
+	private byte[]					buffer	= new byte[8192];
+	private int							head;
+	private int							tail;
+
+	// Chunks handed out and printed so far.
+	private int							read;
+	private int							printed;
+
+	private int							checked;
+	private int							solved;
+
+	// Some lines of input, each ending where the next starts.
+	private static final class Lines
+	{
+		char[]	text	= new char[Chunk * 64];
+		int[]		ends	= new int[Chunk];
+		int			count;
+	}
+
+	public SokobanVerify(SokobanSource levels, InputStream in)
+	{
+		this.levels	= levels;
+		this.in			= in;
+
+		replays = new SokobanReplay[levels.size()];
+	}
+
+	public int checked()
+	{
+		return checked;
+	}
+
+	public int solved()
+	{
+		return solved;
+	}
+
+	public void run()
+	{
+		SokobanReplay[]	mine	= new SokobanReplay[replays.length];
+		Lines						lines	= new Lines();
+		StringBuffer		out		= new StringBuffer();
+
+		for (int chunk = read(lines); chunk >= 0; chunk = read(lines))
+		{
+			int count		= 0;
+			int wins		= 0;
+
+			out.setLength(0);
+
+			for (int i = 0; i < lines.count; ++i)
+			{
+				int from		= 0 == i ? 0 : lines.ends[i - 1];
+				int result	= check(lines.text, from, lines.ends[i], mine, out);
+
+				if (result >= 0)
+					count++;
+
+				if (result > 0)
+					wins++;
+			}
+
+			print(chunk, out, count, wins);
+		}
+	}
+
+	/*
+	 * Check the solution on one line and describe what happened in out.
+	 * Returns 1 if it solves its level, 0 if it doesn't and -1 if the line
+	 * isn't a solution.
+	 */
+	private int check
+		(char[] text, int from, int to, SokobanReplay[] mine, StringBuffer out)
+	{
+		int moves = to;
+
+		while (moves > from && ' ' != text[moves - 1] && '\t' != text[moves - 1])
+			moves--;
+
+		if (moves == to)
+			return -1;
+
+		for (int i = moves; i < to; ++i)
+		{
+			if (0 == SokobanBoard.xDelta(text[i]) + SokobanBoard.yDelta(text[i]))
+				return -1;
+		}
+
+		int level = -1;
+
+		for (int i = from; i < moves; ++i)
+		{
+			if (text[i] >= '0' && text[i] <= '9')
+				level = Math.max(level, 0) * 10 + text[i] - '0';
+			else if (level >= 0)
+				break;
+		}
+
+		if (level < 0)
+			return -1;
+
+		out.append("Level ").append(level).append(": ");
+
+		SokobanReplay replay = level < mine.length ? mine[level] : null;
+
+		if (null == replay)
+		{
+			replay = replay(level);
+
+			if (null == replay)
+			{
+				out.append("no such level\n");
+				return 0;
+			}
+
+			replay = mine[level] = replay.copy();
+		}
+
+		if (!replay.play(text, moves, to - moves))
+		{
+			out.append("illegal move ").append(replay.moves() + 1);
+			out.append(" '").append(text[moves + replay.moves()]).append("'\n");
+			return 0;
+		}
+
+		out.append(replay.solved() ? "solved, " : "not solved, ");
+		out.append(replay.moves()).append(" moves, ");
+		out.append(replay.pushes()).append(" pushes\n");
+
+		return replay.solved() ? 1 : 0;
+	}
+
+	// The level to copy from, or null if there isn't one.
+	private synchronized SokobanReplay replay(int level)
+	{
+		if (level >= replays.length)
+			return null;
+
+		if (null == replays[level])
+		{
+			SokobanBoard board = levels.board(level);
+
+			if (board != null)
+				replays[level] = new SokobanReplay(board);
+		}
+
+		return replays[level];
+	}
+
+	/*
+	 * Read up to Chunk lines, without line endings. Returns the number of the
+	 * chunk, or -1 if there is nothing left.
+	 */
+	private synchronized int read(Lines lines)
+	{
+		int at		= 0;
+		int start	= 0;
+
+		lines.count = 0;
+
+		while (lines.count < Chunk)
+		{
+			int c = get();
+
+			if (c < 0 || '\n' == c)
+			{
+				if (c < 0 && at == start)
+					break;
+
+				lines.ends[lines.count++] = at;
+				start = at;
+
+				if (c < 0)
+					break;
+
+				continue;
+			}
+
+			if ('\r' == c)
+				continue;
+
+			if (at == lines.text.length)
+			{
+				char[] more = new char[at * 2];
+
+				System.arraycopy(lines.text, 0, more, 0, at);
+				lines.text = more;
+			}
+
+			lines.text[at++] = (char)c;
+		}
+
+		return 0 == lines.count ? -1 : read++;
+	}
+
+	private int get()
+	{
+		if (head == tail)
+		{
+			try
+			{
+				tail = in.read(buffer, 0, buffer.length);
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+				tail = -1;
+			}
+
+			head = 0;
+
+			if (tail <= 0)
+			{
+				tail = 0;
+				return -1;
+			}
+		}
+
+		return buffer[head++] & 0xff;
+	}
+
+	// Print a chunk once all the ones before it have been.
+	private synchronized void print(int chunk, StringBuffer out, int count, int wins)
+	{
+		while (chunk != printed)
+		{
+			try
+			{
+				wait();
+			}
+			catch (InterruptedException e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		System.out.print(out.toString());
+
+		checked	+= count;
+		solved	+= wins;
+
+		printed++;
+		notifyAll();
+	}
+
+	public static void main(String[] args)
+	{
+		int threads = 4;
+
+		SokobanSource levels = new SokobanLevels();
+
+		for (int i = 0; i < args.length; ++i)
+		{
+			if (args[i].equals("-threads"))
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-pack"))
+				levels = SokobanBinaryPack.open(args[++i]);
+		}
+
+		SokobanVerify verify = new SokobanVerify(levels, System.in);
+
+		long begin = System.currentTimeMillis();
+
+		Thread runners[] = new Thread[threads];
+
+		for (int i = 0; i < threads; ++i)
+		{
+			runners[i] = new Thread(verify);
+			runners[i].start();
+		}
+
+		for (int i = 0; i < threads; ++i)
+		{
+			try
+			{
+				runners[i].join();
+			}
+			catch (InterruptedException e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		System.out.println
+			(
+			 "Solved " + verify.solved() + " of " + verify.checked() +
+			 " in " + (System.currentTimeMillis() - begin) + " ms"
+			);
+	}
+}